@@ -0,0 +1,27 @@
+package kz.it.patentparser.archive;
+
+/**
+ * Одна запись индекса архива: что и когда было получено и где в сегментах лежит тело ответа.
+ * Несколько записей с одинаковым contentHash указывают на один и тот же блоб.
+ */
+public record ArchiveEntry(long fetchedAt, String source, String category, String key, String contentHash,
+                           int segment, long offset, int compressedLength, int rawLength) {
+
+    String toIndexLine() {
+        return String.join("\t", String.valueOf(fetchedAt), clean(source), clean(category), clean(key), contentHash,
+                String.valueOf(segment), String.valueOf(offset), String.valueOf(compressedLength), String.valueOf(rawLength));
+    }
+
+    static ArchiveEntry fromIndexLine(String line) {
+        String[] parts = line.split("\t");
+        if (parts.length != 9) {
+            throw new IllegalArgumentException("Malformed archive index line: " + line);
+        }
+        return new ArchiveEntry(Long.parseLong(parts[0]), parts[1], parts[2], parts[3], parts[4],
+                Integer.parseInt(parts[5]), Long.parseLong(parts[6]), Integer.parseInt(parts[7]), Integer.parseInt(parts[8]));
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,372 @@
+package kz.it.patentparser.archive;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Архив сырых ответов сайтов: детальные страницы госреестра и JSON ebulletin, чтобы исправления парсеров
+ * можно было проверять и применять без повторного обхода реестра.
+ * <p>
+ * Тела хранятся сжатыми (deflate) в сегментах segment-NNNNN.dat, которые только дописываются; одинаковое
+ * содержимое (по SHA-256) записывается один раз. Индекс index.tsv - по строке на каждое получение:
+ * время, источник, категория, ключ (docNumber или бюллетень) и адрес блоба. Хеш и сжатие считаются
+ * в вызывающих потоках, а один поток-писатель пачками дописывает сегмент и индекс, так что запись
+ * последовательная и не тормозит обход. Чтение идёт через отображённые в память сегменты.
+ */
+@Component
+public class RawResponseArchive {
+    public static final String GOSREESTR = "gosreestr";
+    public static final String EBULLETIN = "ebulletin";
+
+    private static final Logger logger = LoggerFactory.getLogger(RawResponseArchive.class);
+    private static final int RECORD_MAGIC = 0x4B504152;
+    // magic, SHA-256, длина до сжатия, длина после сжатия
+    private static final int HEADER_BYTES = 4 + 32 + 4 + 4;
+    private static final int WRITE_BATCH = 256;
+    private static final String INDEX_FILE = "index.tsv";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final PendingWrite POISON = new PendingWrite(0, null, null, null, null, 0, null);
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Map<String, ArchiveEntry> blobs = new ConcurrentHashMap<>();
+    private final Map<String, List<ArchiveEntry>> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> mappedSegments = new ConcurrentHashMap<>();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+
+    private volatile boolean enabled;
+    private Thread writer;
+    // Состояние ниже меняет только поток-писатель
+    private FileChannel segmentChannel;
+    private volatile int segmentNo;
+    private long segmentSize;
+    private BufferedWriter indexWriter;
+
+    public RawResponseArchive(@Value("${archive.enabled:true}") boolean enabled,
+                              @Value("${archive.dir:archive}") String dir,
+                              @Value("${archive.segment-bytes:268435456}") long segmentBytes,
+                              @Value("${archive.queue-capacity:1000}") int queueCapacity) {
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentBytes;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (enabled) {
+            try {
+                open();
+                this.enabled = true;
+            } catch (IOException | UncheckedIOException e) {
+                // Архив вспомогательный - без него парсеры продолжают работать
+                logger.error("Raw response archive disabled, could not open {}: {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ставит тело ответа в очередь на запись. Если очередь полна, вызывающий ждёт писателя.
+     */
+    public void store(String source, String category, String key, String body) {
+        if (!enabled || body == null) {
+            return;
+        }
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(raw);
+        byte[] compressed = blobs.containsKey(hash) ? null : compress(raw);
+        try {
+            queue.put(new PendingWrite(System.currentTimeMillis(), source, category, key, hash, raw.length, compressed));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Optional<ArchiveEntry> latest(String source, String category, String key) {
+        List<ArchiveEntry> history = entries.get(entryKey(source, category, key));
+        return history == null || history.isEmpty() ? Optional.empty() : Optional.of(history.get(history.size() - 1));
+    }
+
+    public List<ArchiveEntry> history(String source, String category, String key) {
+        return List.copyOf(entries.getOrDefault(entryKey(source, category, key), List.of()));
+    }
+
+    /**
+     * Последние версии всех ключей источника в порядке расположения в сегментах,
+     * чтобы пакетное чтение шло по отображённым файлам последовательно.
+     */
+    public List<ArchiveEntry> latestEntries(String source) {
+        return entries.values().stream()
+                .filter(history -> !history.isEmpty())
+                .map(history -> history.get(history.size() - 1))
+                .filter(entry -> entry.source().equals(source))
+                .sorted(Comparator.comparingInt(ArchiveEntry::segment).thenComparingLong(ArchiveEntry::offset))
+                .toList();
+    }
+
+    public Optional<String> readLatest(String source, String category, String key) {
+        return latest(source, category, key).map(this::read);
+    }
+
+    public String read(ArchiveEntry entry) {
+        ByteBuffer view = segmentView(entry.segment(), entry.offset() + HEADER_BYTES + entry.compressedLength());
+        view.position((int) entry.offset());
+        if (view.getInt() != RECORD_MAGIC) {
+            throw new IllegalStateException("Corrupt archive record in segment " + entry.segment() + " at " + entry.offset());
+        }
+        view.position(view.position() + 32 + 8);
+        byte[] compressed = new byte[entry.compressedLength()];
+        view.get(compressed);
+        return new String(inflate(compressed, entry.rawLength()), StandardCharsets.UTF_8);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("enabled", enabled);
+        values.put("segments", enabled ? segmentNo + 1 : 0);
+        values.put("blobs", blobs.size());
+        values.put("keys", entries.size());
+        values.put("stored", stored.sum());
+        values.put("deduplicated", deduplicated.sum());
+        values.put("rawBytes", rawBytes.sum());
+        values.put("compressedBytes", compressedBytes.sum());
+        values.put("queued", queue.size());
+        return values;
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        loadIndex();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            segmentNo = files.map(path -> SEGMENT_NAME.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                    .max()
+                    .orElse(0);
+        }
+        openSegment();
+        indexWriter = Files.newBufferedWriter(dir.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        writer = new Thread(this::run, "raw-response-archive");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Raw response archive at {}: {} blobs, {} keys, segment {}", dir.toAbsolutePath(), blobs.size(), entries.size(), segmentNo);
+    }
+
+    private void loadIndex() throws IOException {
+        Path index = dir.resolve(INDEX_FILE);
+        if (!Files.exists(index)) {
+            return;
+        }
+        try (Stream<String> lines = Files.lines(index, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                try {
+                    ArchiveEntry entry = ArchiveEntry.fromIndexLine(line);
+                    blobs.putIfAbsent(entry.contentHash(), entry);
+                    entries.computeIfAbsent(entryKey(entry.source(), entry.category(), entry.key()), k -> new CopyOnWriteArrayList<>()).add(entry);
+                } catch (IllegalArgumentException e) {
+                    // Недописанная строка после аварийной остановки
+                    logger.warn("Skipping archive index line: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(WRITE_BATCH);
+        boolean finished = false;
+        while (!finished) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, WRITE_BATCH - 1);
+            } catch (InterruptedException e) {
+                finished = true;
+            }
+            finished |= batch.remove(POISON);
+            write(batch);
+            batch.clear();
+        }
+        closeFiles();
+    }
+
+    private void write(List<PendingWrite> batch) {
+        try {
+            for (PendingWrite pending : batch) {
+                ArchiveEntry blob = blobs.get(pending.hash());
+                if (blob == null) {
+                    blob = appendBlob(pending);
+                    blobs.put(pending.hash(), blob);
+                    compressedBytes.add(blob.compressedLength());
+                } else {
+                    deduplicated.increment();
+                }
+                ArchiveEntry entry = new ArchiveEntry(pending.fetchedAt(), pending.source(), pending.category(), pending.key(),
+                        pending.hash(), blob.segment(), blob.offset(), blob.compressedLength(), blob.rawLength());
+                indexWriter.write(entry.toIndexLine());
+                indexWriter.newLine();
+                entries.computeIfAbsent(entryKey(entry.source(), entry.category(), entry.key()), k -> new CopyOnWriteArrayList<>()).add(entry);
+                stored.increment();
+                rawBytes.add(pending.rawLength());
+            }
+            indexWriter.flush();
+        } catch (IOException e) {
+            logger.error("Error writing {} responses to archive", batch.size(), e);
+        }
+    }
+
+    private ArchiveEntry appendBlob(PendingWrite pending) throws IOException {
+        byte[] compressed = pending.compressed();
+        if (segmentSize > 0 && segmentSize + HEADER_BYTES + compressed.length > segmentBytes) {
+            segmentChannel.force(false);
+            segmentChannel.close();
+            segmentNo++;
+            openSegment();
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(RECORD_MAGIC)
+                .put(HexFormat.of().parseHex(pending.hash()))
+                .putInt(pending.rawLength())
+                .putInt(compressed.length)
+                .flip();
+        ByteBuffer[] record = {header, ByteBuffer.wrap(compressed)};
+        long offset = segmentSize;
+        while (record[1].hasRemaining()) {
+            segmentChannel.write(record);
+        }
+        segmentSize += HEADER_BYTES + compressed.length;
+        return new ArchiveEntry(pending.fetchedAt(), pending.source(), pending.category(), pending.key(), pending.hash(),
+                segmentNo, offset, compressed.length, pending.rawLength());
+    }
+
+    private void openSegment() throws IOException {
+        segmentChannel = FileChannel.open(segmentPath(segmentNo), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = segmentChannel.size();
+    }
+
+    /**
+     * Отображение сегмента, покрывающее как минимум end байт. Активный сегмент растёт, поэтому при чтении
+     * за пределами прошлого отображения оно пересоздаётся.
+     */
+    private ByteBuffer segmentView(int segment, long end) {
+        MappedByteBuffer mapped = mappedSegments.get(segment);
+        if (mapped == null || mapped.capacity() < end) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            mappedSegments.put(segment, mapped);
+        }
+        return mapped.duplicate();
+    }
+
+    private Path segmentPath(int segment) {
+        return dir.resolve(String.format("segment-%05d.dat", segment));
+    }
+
+    private void closeFiles() {
+        try {
+            indexWriter.close();
+            segmentChannel.force(true);
+            segmentChannel.close();
+        } catch (IOException e) {
+            logger.error("Error closing archive files", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        queue.put(POISON);
+        writer.join();
+    }
+
+    private static String entryKey(String source, String category, String key) {
+        return source + "|" + category + "|" + key;
+    }
+
+    private static String sha256(byte[] raw) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(raw));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private record PendingWrite(long fetchedAt, String source, String category, String key, String hash,
+                                int rawLength, byte[] compressed) {
+    }
+}
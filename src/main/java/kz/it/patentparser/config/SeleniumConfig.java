@@ -1,39 +1,37 @@
-//package kz.it.patentparser.config;
-//
-//import io.github.bonigarcia.wdm.WebDriverManager;
-//import jakarta.annotation.PreDestroy;
-//import org.openqa.selenium.WebDriver;
-//import org.openqa.selenium.chrome.ChromeDriver;
-//import org.openqa.selenium.chrome.ChromeOptions;
-//import org.springframework.context.annotation.Bean;
-//import org.springframework.context.annotation.Configuration;
-//
-//@Configuration
-//public class SeleniumConfig {
-//
-//    private WebDriver webDriver;
-//
-//    @Bean
-//    public WebDriver webDriver() {
-//        if (webDriver == null) {
-////            System.setProperty("webdriver.chrome.driver", System.getenv("CHROMEDRIVER_PATH"));
-//             WebDriverManager.chromedriver().setup(); // Use this if you prefer auto-management
-//
-//            ChromeOptions options = new ChromeOptions();
-//            options.addArguments("--headless");  // Run without UI
-//            options.addArguments("--disable-gpu");
-//            options.addArguments("--no-sandbox");
-//            options.addArguments("--disable-dev-shm-usage");
-//
-//            webDriver = new ChromeDriver(options);
-//        }
-//        return webDriver;
-//    }
-//
-//    @PreDestroy
-//    public void closeWebDriver() {
-//        if (webDriver != null) {
-//            webDriver.quit();
-//        }
-//    }
-//}
+package kz.it.patentparser.config;
+
+import kz.it.patentparser.selenium.BrowserProfiles;
+import kz.it.patentparser.selenium.ChromeDriverFactory;
+import kz.it.patentparser.selenium.WebDriverPool;
+import org.openqa.selenium.Dimension;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class SeleniumConfig {
+
+    @Bean
+    public BrowserProfiles browserProfiles(@Value("${selenium.lean.blocked-urls:*.png,*.jpg,*.jpeg,*.gif,*.svg,*.ico,*.webp,*.woff,*.woff2,*.ttf,*.eot}") List<String> blockedUrls,
+                                           @Value("${selenium.lean.window-width:1280}") int windowWidth,
+                                           @Value("${selenium.lean.window-height:800}") int windowHeight,
+                                           @Value("${selenium.lean.compare-every:0}") int compareEvery) {
+        return new BrowserProfiles(blockedUrls, new Dimension(windowWidth, windowHeight), compareEvery);
+    }
+
+    @Bean(destroyMethod = "close")
+    public WebDriverPool webDriverPool(BrowserProfiles browserProfiles,
+                                       @Value("${selenium.chrome.driver}") String driverPath,
+                                       @Value("${selenium.pool.max-total:4}") int maxTotal,
+                                       @Value("${selenium.pool.max-uses:50}") int maxUses,
+                                       @Value("${selenium.pool.borrow-timeout-minutes:30}") long borrowTimeoutMinutes,
+                                       @Value("${selenium.pool.idle-timeout-minutes:10}") long idleTimeoutMinutes,
+                                       @Value("${selenium.session.recycle-pages:200}") int recyclePages,
+                                       @Value("${selenium.session.degrade-factor:3.0}") double degradeFactor) {
+        return new WebDriverPool(new ChromeDriverFactory(driverPath, maxUses), browserProfiles, maxTotal,
+                Duration.ofMinutes(borrowTimeoutMinutes), Duration.ofMinutes(idleTimeoutMinutes), recyclePages, degradeFactor);
+    }
+}
@@ -2,9 +2,16 @@ package kz.it.patentparser.controller;
 
 
 
+import kz.it.patentparser.archive.RawResponseArchive;
 import kz.it.patentparser.enums.NavigationDirection;
+import kz.it.patentparser.http.CircuitBreakers;
+import kz.it.patentparser.http.HostRateLimiters;
+import kz.it.patentparser.http.RequestHedging;
+import kz.it.patentparser.parser.GosReestrDetailParser;
 import kz.it.patentparser.parser.PatentParser;
 import kz.it.patentparser.processor.PatentProcessor;
+import kz.it.patentparser.selenium.BrowserProfiles;
+import kz.it.patentparser.selenium.PageReadiness;
 import kz.it.patentparser.service.PatentApiClient;
 import kz.it.patentparser.service.PatentService;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -14,6 +21,7 @@ import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/patents")
@@ -22,12 +30,26 @@ public class PatentController {
     private final PatentProcessor patentProcessor;
     private final PatentService patentService;
     private final PatentApiClient patentApiClient;
+    private final PageReadiness pageReadiness;
+    private final HostRateLimiters rateLimiters;
+    private final RawResponseArchive archive;
+    private final GosReestrDetailParser detailParser;
+    private final RequestHedging hedging;
+    private final CircuitBreakers breakers;
+    private final BrowserProfiles browserProfiles;
 
 
-    public PatentController(PatentProcessor patentProcessor, PatentService patentService, PatentApiClient patentApiClient) {
+    public PatentController(PatentProcessor patentProcessor, PatentService patentService, PatentApiClient patentApiClient, PageReadiness pageReadiness, HostRateLimiters rateLimiters, RawResponseArchive archive, GosReestrDetailParser detailParser, RequestHedging hedging, CircuitBreakers breakers, BrowserProfiles browserProfiles) {
         this.patentProcessor = patentProcessor;
         this.patentService = patentService;
         this.patentApiClient = patentApiClient;
+        this.pageReadiness = pageReadiness;
+        this.rateLimiters = rateLimiters;
+        this.archive = archive;
+        this.detailParser = detailParser;
+        this.hedging = hedging;
+        this.breakers = breakers;
+        this.browserProfiles = browserProfiles;
     }
 
     @PostMapping("/parse")
@@ -47,6 +69,18 @@ public class PatentController {
         return "Парсинг завершен!";
     }
 
+    @PostMapping("/parse/gosreestr/sharded")
+    public String parseSharded() {
+        patentProcessor.runShardedCrawl();
+        return "Парсинг завершен!";
+    }
+
+    @PostMapping("/parse/gosreestr/incremental")
+    public String parseIncremental() {
+        patentProcessor.runIncremental();
+        return "Парсинг завершен!";
+    }
+
     @PostMapping("/parse/{parserName}/{category}")
     public String parse(@PathVariable String parserName, @PathVariable String category) {
         patentProcessor.runParser(parserName, category);
@@ -68,6 +102,70 @@ public class PatentController {
         return "Парсинг завершен!";
     }
 
+    @PostMapping("/parse/gosreestr/{category}/sharded")
+    public String parseSharded(@PathVariable String category) {
+        patentProcessor.runShardedCrawl(category);
+        return "Парсинг завершен!";
+    }
+
+    @PostMapping("/parse/gosreestr/{category}/incremental")
+    public String parseIncremental(@PathVariable String category) {
+        patentProcessor.runIncremental(category);
+        return "Парсинг завершен!";
+    }
+
+    @PostMapping("/parse/gosreestr-http/{category}/{from}/{to}")
+    public String parseRange(@PathVariable String category, @PathVariable long from, @PathVariable long to) throws InterruptedException {
+        patentProcessor.runHttpRange(category, from, to);
+        return "Парсинг завершен!";
+    }
+
+    @PostMapping("/queue/gosreestr/sharded")
+    public String enqueueSharded() {
+        int added = patentProcessor.enqueueShardedCrawl("manual-" + System.currentTimeMillis());
+        return "В очередь добавлено единиц: " + added;
+    }
+
+    @PostMapping("/queue/gosreestr-http/{category}/{from}/{to}")
+    public String enqueueRange(@PathVariable String category, @PathVariable long from, @PathVariable long to) {
+        int added = patentProcessor.enqueueHttpRange("manual-" + System.currentTimeMillis(), category, from, to);
+        return "В очередь добавлено единиц: " + added;
+    }
+
+    @PostMapping("/queue/incremental")
+    public String enqueueIncremental() {
+        int added = patentProcessor.enqueueIncrementalParsers("manual-" + System.currentTimeMillis());
+        return "В очередь добавлено единиц: " + added;
+    }
+
+    @PostMapping("/queue/discover")
+    public String enqueueDiscovery() {
+        int added = patentProcessor.enqueueDiscovery("manual-" + System.currentTimeMillis());
+        return "В очередь добавлено единиц: " + added;
+    }
+
+    @PostMapping("/parse/gosreestr-http/discover")
+    public String discover() {
+        patentProcessor.runDiscovery();
+        return "Парсинг завершен!";
+    }
+
+    @PostMapping("/parse/gosreestr-http/discover/{category}")
+    public String discover(@PathVariable String category) {
+        patentProcessor.runDiscovery(category);
+        return "Парсинг завершен!";
+    }
+
+    @PostMapping("/reparse/{source}")
+    public Map<String, Object> reparse(@PathVariable String source) {
+        return patentProcessor.runReparse(source, null);
+    }
+
+    @PostMapping("/reparse/{source}/{category}")
+    public Map<String, Object> reparse(@PathVariable String source, @PathVariable String category) {
+        return patentProcessor.runReparse(source, category);
+    }
+
 //    @PostMapping("/check/{category}/{from}/{to}")
 //    public String check(@PathVariable String category, @PathVariable int from, @PathVariable int to) {
 //        patentCheckerService.startProcessing(category, from, to);
@@ -85,6 +183,46 @@ public class PatentController {
         return "Повторная проверка завершена!";
     }
 
+    @GetMapping("/metrics/readiness")
+    public Map<String, Map<String, Long>> readinessMetrics() {
+        return pageReadiness.getMetrics().snapshot();
+    }
+
+    @GetMapping("/metrics/http-limiters")
+    public Map<String, Map<String, Object>> httpLimiterMetrics() {
+        return rateLimiters.snapshot();
+    }
+
+    @GetMapping("/metrics/hedging")
+    public Map<String, Map<String, Object>> hedgingMetrics() {
+        return hedging.snapshot();
+    }
+
+    @GetMapping("/metrics/circuit-breakers")
+    public Map<String, Map<String, Object>> circuitBreakerMetrics() {
+        return breakers.snapshot();
+    }
+
+    @GetMapping("/metrics/work-queue")
+    public Map<String, Object> workQueueMetrics() {
+        return patentProcessor.getWorkQueueMetrics();
+    }
+
+    @GetMapping("/metrics/browser-profiles")
+    public Map<String, Object> browserProfileMetrics() {
+        return browserProfiles.snapshot();
+    }
+
+    @GetMapping("/metrics/archive")
+    public Map<String, Object> archiveMetrics() {
+        return archive.snapshot();
+    }
+
+    @GetMapping("/metrics/detail-extraction")
+    public Map<String, Long> detailExtractionMetrics() {
+        return detailParser.snapshot();
+    }
+
     @GetMapping("/image/ebulletin/{patentId}/{endpoint}")
     public Mono<String> fetchImage(@PathVariable String patentId, @PathVariable String endpoint) {
         return patentApiClient.fetchImageBase64(patentId, endpoint);
@@ -0,0 +1,17 @@
+package kz.it.patentparser.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Карточка из списка госреестра: ссылка на детальную страницу и текст карточки.
+ * Браузер только собирает их, детальные страницы загружает DetailFetchStage.
+ */
+@Getter
+@AllArgsConstructor
+public class CardListingDto {
+    private String category;
+    private String detailUrl;
+    private String docNumber;
+    private String cardText;
+}
@@ -0,0 +1,17 @@
+package kz.it.patentparser.enums;
+
+/**
+ * Вид единицы распределённой очереди обхода; диапазон единицы (rangeFrom..rangeTo) зависит от вида.
+ */
+public enum CrawlUnitKind {
+    // Страницы списка категории госреестра в браузере, rangeFrom..rangeTo - номера страниц
+    GOSREESTR_PAGES,
+    // Детальные страницы госреестра по HTTP, rangeFrom..rangeTo - docNumber
+    GOSREESTR_DOC_RANGE,
+    // Инкрементальный обход категории госреестра выше водяной отметки
+    GOSREESTR_INCREMENTAL,
+    // Поиск новых docNumber категории госреестра пробами
+    GOSREESTR_DISCOVERY,
+    // Все бюллетени года ebulletin, rangeFrom - год
+    EBULLETIN_YEAR
+}
@@ -4,14 +4,16 @@ import java.util.HashMap;
 import java.util.Map;
 
 public enum PatentCategory {
-    INVENTION(1, "Изобретения"),
-    UTILITY_MODEL(2, "Полезные модели"),
-    SELECTION_ACHIEVEMENT(3, "Селекционные достижения"),
-    TRADEMARK(4, "Товарные знаки"),
-    WELL_KNOWN_TRADEMARK(5, "Общеизвестные товарные знаки");
+    INVENTION(1, "Изобретения", "Invention"),
+    UTILITY_MODEL(2, "Полезные модели", "Utilitymodel"),
+    SELECTION_ACHIEVEMENT(3, "Селекционные достижения", "SelectionAchievement"),
+    TRADEMARK(4, "Товарные знаки", "Trademark"),
+    WELL_KNOWN_TRADEMARK(5, "Общеизвестные товарные знаки", "TrademarkUniversal");
 
     private final int id;
     private final String name;
+    // Значение cbReestrType на gosreestr.kazpatent.kz, оно же префикс пути /{reestrType}/Details
+    private final String reestrType;
 
     private static final Map<Integer, PatentCategory> CATEGORY_MAP = new HashMap<>();
     private static final Map<String, PatentCategory> NAME_MAP = new HashMap<>();
@@ -23,9 +25,10 @@ public enum PatentCategory {
         }
     }
 
-    PatentCategory(int id, String name) {
+    PatentCategory(int id, String name, String reestrType) {
         this.id = id;
         this.name = name;
+        this.reestrType = reestrType;
     }
 
     public int getId() {
@@ -36,6 +39,10 @@ public enum PatentCategory {
         return name;
     }
 
+    public String getReestrType() {
+        return reestrType;
+    }
+
     public static PatentCategory fromId(int id) {
         return CATEGORY_MAP.get(id);
     }
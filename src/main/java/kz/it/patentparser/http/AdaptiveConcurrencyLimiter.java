@@ -0,0 +1,261 @@
+package kz.it.patentparser.http;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Адаптивный лимит одновременных запросов к одному хосту (AIMD).
+ * Каждый ответ с нормальной задержкой поднимает лимит на 1/limit - примерно +1 за окно запросов.
+ * 429 и 502/503/504 снижают лимит в backoff-ratio раз, задержка выше latency-tolerance * базовой - в latency-backoff-ratio раз.
+ * Снижение - не чаще раза за базовую задержку, чтобы пачка ответов на одну перегрузку не обнулила лимит.
+ * Retry-After ставит хост на паузу: новые разрешения не выдаются до её окончания.
+ * Остальные статусы (в том числе 404 и 500, которыми госреестр отвечает на несуществующие номера) считаются обычными ответами.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double LATENCY_EWMA_WEIGHT = 0.05;
+
+    private final String host;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final double latencyBackoffRatio;
+    private final double latencyTolerance;
+    private final ScheduledExecutorService scheduler;
+
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double baselineLatencyNanos;
+    private long lastDecreaseNanos;
+    private long pausedUntilNanos;
+    private boolean wakeScheduled;
+
+    private long granted;
+    private long throttled;
+    private long overloaded;
+    private long errors;
+    private long decreases;
+
+    AdaptiveConcurrencyLimiter(String host, double initialLimit, double minLimit, double maxLimit, double backoffRatio,
+                               double latencyBackoffRatio, double latencyTolerance, ScheduledExecutorService scheduler) {
+        this.host = host;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyBackoffRatio = latencyBackoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.scheduler = scheduler;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Разрешение на один запрос. Future завершается, когда хост не на паузе и в полёте меньше limit запросов.
+     * Отмена future до выдачи снимает ожидание.
+     */
+    public CompletableFuture<Permit> acquireAsync() {
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        List<Grant> grants;
+        synchronized (this) {
+            waiters.addLast(waiter);
+            grants = dispatch();
+        }
+        complete(grants);
+        return waiter;
+    }
+
+    public Permit acquire() throws InterruptedException {
+        CompletableFuture<Permit> waiter = acquireAsync();
+        try {
+            return waiter.get();
+        } catch (InterruptedException e) {
+            if (!waiter.cancel(false)) {
+                waiter.join().cancel();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("limit", Math.round(limit * 100) / 100.0);
+        values.put("inFlight", inFlight);
+        values.put("waiting", waiters.size());
+        values.put("baselineLatencyMs", Math.round(baselineLatencyNanos / 1_000_000));
+        values.put("pausedForMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - System.nanoTime())));
+        values.put("granted", granted);
+        values.put("throttled", throttled);
+        values.put("overloaded", overloaded);
+        values.put("errors", errors);
+        values.put("decreases", decreases);
+        return values;
+    }
+
+    private void release(Permit permit, int status, Duration retryAfter, boolean failed) {
+        long now = System.nanoTime();
+        long latency = now - permit.startNanos;
+        List<Grant> grants;
+        synchronized (this) {
+            inFlight--;
+            if (failed) {
+                errors++;
+                decrease(backoffRatio, now);
+            } else if (status == 429) {
+                throttled++;
+                decrease(backoffRatio, now);
+            } else if (status == 502 || status == 503 || status == 504) {
+                overloaded++;
+                decrease(backoffRatio, now);
+            } else if (baselineLatencyNanos > 0 && latency > baselineLatencyNanos * latencyTolerance) {
+                decrease(latencyBackoffRatio, now);
+            } else {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            if (!failed && status < 500 && status != 429) {
+                baselineLatencyNanos = baselineLatencyNanos == 0
+                        ? latency
+                        : baselineLatencyNanos * (1 - LATENCY_EWMA_WEIGHT) + latency * LATENCY_EWMA_WEIGHT;
+            }
+            if (retryAfter != null && !retryAfter.isNegative()) {
+                pausedUntilNanos = Math.max(pausedUntilNanos, now + retryAfter.toNanos());
+            }
+            grants = dispatch();
+        }
+        complete(grants);
+    }
+
+    private synchronized void cancel() {
+        inFlight--;
+    }
+
+    private void decrease(double ratio, long now) {
+        if (now - lastDecreaseNanos < baselineLatencyNanos) {
+            return;
+        }
+        limit = Math.max(minLimit, limit * ratio);
+        lastDecreaseNanos = now;
+        decreases++;
+    }
+
+    /**
+     * Выдаёт разрешения ожидающим, пока есть место; вызывается под блокировкой, завершение future - вне её.
+     */
+    private List<Grant> dispatch() {
+        List<Grant> grants = new ArrayList<>();
+        long now = System.nanoTime();
+        if (pausedUntilNanos > now) {
+            if (!wakeScheduled) {
+                wakeScheduled = true;
+                scheduler.schedule(this::wake, pausedUntilNanos - now, TimeUnit.NANOSECONDS);
+            }
+            return grants;
+        }
+        while (!waiters.isEmpty() && inFlight < Math.max(1, (int) limit)) {
+            CompletableFuture<Permit> waiter = waiters.pollFirst();
+            if (waiter.isDone()) {
+                continue;
+            }
+            inFlight++;
+            granted++;
+            grants.add(new Grant(waiter, new Permit(now)));
+        }
+        return grants;
+    }
+
+    private void wake() {
+        List<Grant> grants;
+        synchronized (this) {
+            wakeScheduled = false;
+            grants = dispatch();
+        }
+        complete(grants);
+    }
+
+    private void complete(List<Grant> grants) {
+        for (Grant grant : grants) {
+            if (!grant.waiter().complete(grant.permit())) {
+                grant.permit().cancel();
+            }
+        }
+    }
+
+    /**
+     * Retry-After: число секунд или HTTP-дата.
+     */
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                return Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private record Grant(CompletableFuture<Permit> waiter, Permit permit) {
+    }
+
+    /**
+     * Одно выданное разрешение. Освобождается ровно один раз: ответом, ошибкой или отменой.
+     */
+    public final class Permit {
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        public void onResponse(int status, String retryAfter) {
+            if (released.compareAndSet(false, true)) {
+                release(this, status, parseRetryAfter(retryAfter), false);
+            }
+        }
+
+        /**
+         * Сетевая ошибка или таймаут - признак перегрузки, как и 503.
+         */
+        public void onError() {
+            if (released.compareAndSet(false, true)) {
+                release(this, 0, null, true);
+            }
+        }
+
+        /**
+         * Запрос не был выполнен или отменён - лимит не меняется.
+         */
+        public void cancel() {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.cancel();
+                List<Grant> grants;
+                synchronized (AdaptiveConcurrencyLimiter.this) {
+                    grants = dispatch();
+                }
+                complete(grants);
+            }
+        }
+    }
+}
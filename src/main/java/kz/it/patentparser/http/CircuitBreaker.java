@@ -0,0 +1,295 @@
+package kz.it.patentparser.http;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Предохранитель одного источника (хост и эндпоинт): CLOSED - запросы идут, исходы пишутся в окно последних window-size;
+ * доля отказов не ниже failure-rate при хотя бы min-calls исходах переводит его в OPEN. В OPEN вызывающие паркуются
+ * (future разрешения не завершается) на open-ms; потом HALF_OPEN пропускает half-open-calls пробных запросов.
+ * Все пробы успешны - CLOSED и все ожидающие продолжают, хоть одна неудачна - снова OPEN на вдвое больший срок (до max-open-ms).
+ * Каждое открытие начинает новое поколение; исходы запросов, выданных в прошлом поколении (пробы прошлого раунда HALF_OPEN,
+ * запросы CLOSED до открытия), на состояние не влияют - учитываются только в общей статистике.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final long maxOpenNanos;
+    private final int halfOpenCalls;
+    private final ScheduledExecutorService scheduler;
+    // Источник времени в наносекундах (System::nanoTime), сроки OPEN отсчитываются по нему
+    private final LongSupplier nanoClock;
+
+    private final boolean[] window;
+    private final Deque<CompletableFuture<Call>> waiters = new ArrayDeque<>();
+    private int next;
+    private int count;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openUntilNanos;
+    private long currentOpenNanos;
+    private int trialsInFlight;
+    private int trialSuccesses;
+    private long generation;
+    private boolean wakeScheduled;
+
+    private long calls;
+    private long failed;
+    private long opened;
+    private long parked;
+
+    CircuitBreaker(String name, int windowSize, int minCalls, double failureRate, long openNanos, long maxOpenNanos,
+                   int halfOpenCalls, ScheduledExecutorService scheduler, LongSupplier nanoClock) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minCalls = minCalls;
+        this.failureRate = failureRate;
+        this.openNanos = openNanos;
+        this.maxOpenNanos = maxOpenNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+        this.window = new boolean[windowSize];
+        this.currentOpenNanos = openNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Разрешение на один запрос; в OPEN и при занятых пробах HALF_OPEN future завершается только после восстановления.
+     * Отмена future до выдачи снимает ожидание.
+     */
+    public CompletableFuture<Call> acquireAsync() {
+        CompletableFuture<Call> waiter = new CompletableFuture<>();
+        Call call;
+        synchronized (this) {
+            call = tryEnter();
+            if (call == null) {
+                parked++;
+                waiters.addLast(waiter);
+                scheduleWake();
+            }
+        }
+        if (call != null && !waiter.complete(call)) {
+            call.ignore();
+        }
+        return waiter;
+    }
+
+    /**
+     * Блокирует поток, пока источник не восстановится.
+     */
+    public Call acquire() throws InterruptedException {
+        CompletableFuture<Call> waiter = acquireAsync();
+        try {
+            return waiter.get();
+        } catch (InterruptedException e) {
+            if (!waiter.cancel(false)) {
+                waiter.join().ignore();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("state", state.name());
+        values.put("failureRate", count == 0 ? 0.0 : Math.round(failures * 100.0 / count) / 100.0);
+        values.put("openForMs", state == State.OPEN ? Math.max(0, TimeUnit.NANOSECONDS.toMillis(openUntilNanos - nanoClock.getAsLong())) : 0);
+        values.put("waiting", waiters.size());
+        values.put("calls", calls);
+        values.put("failed", failed);
+        values.put("opened", opened);
+        values.put("parked", parked);
+        return values;
+    }
+
+    /**
+     * Под блокировкой: выдаёт разрешение, если состояние позволяет, иначе null.
+     */
+    private Call tryEnter() {
+        if (state == State.OPEN && nanoClock.getAsLong() >= openUntilNanos) {
+            state = State.HALF_OPEN;
+            trialsInFlight = 0;
+            trialSuccesses = 0;
+        }
+        if (state == State.CLOSED) {
+            return new Call(false, generation);
+        }
+        if (state == State.HALF_OPEN && trialsInFlight < halfOpenCalls) {
+            trialsInFlight++;
+            return new Call(true, generation);
+        }
+        return null;
+    }
+
+    private void record(Call call, boolean success) {
+        List<Grant> grants;
+        synchronized (this) {
+            calls++;
+            if (!success) {
+                failed++;
+            }
+            // Запрос, выданный до последнего открытия, на состояние не влияет
+            boolean current = call.generation == generation;
+            if (current && call.trial) {
+                trialsInFlight--;
+                if (state == State.HALF_OPEN) {
+                    if (!success) {
+                        open(Math.min(maxOpenNanos, currentOpenNanos * 2));
+                    } else if (++trialSuccesses >= halfOpenCalls) {
+                        close();
+                    }
+                }
+            } else if (current && state == State.CLOSED) {
+                if (count == windowSize && !window[next]) {
+                    failures--;
+                }
+                window[next] = success;
+                if (!success) {
+                    failures++;
+                }
+                next = (next + 1) % windowSize;
+                count = Math.min(windowSize, count + 1);
+                if (count >= minCalls && failures >= failureRate * count) {
+                    open(openNanos);
+                }
+            }
+            grants = dispatch();
+        }
+        complete(grants);
+    }
+
+    private void release(Call call) {
+        List<Grant> grants;
+        synchronized (this) {
+            if (call.trial && call.generation == generation) {
+                trialsInFlight--;
+            }
+            grants = dispatch();
+        }
+        complete(grants);
+    }
+
+    private void open(long durationNanos) {
+        state = State.OPEN;
+        generation++;
+        currentOpenNanos = durationNanos;
+        openUntilNanos = nanoClock.getAsLong() + durationNanos;
+        opened++;
+        scheduleWake();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        currentOpenNanos = openNanos;
+        next = 0;
+        count = 0;
+        failures = 0;
+    }
+
+    private void scheduleWake() {
+        if (state == State.OPEN && !wakeScheduled) {
+            wakeScheduled = true;
+            scheduler.schedule(this::wake, Math.max(0, openUntilNanos - nanoClock.getAsLong()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void wake() {
+        List<Grant> grants;
+        synchronized (this) {
+            wakeScheduled = false;
+            grants = dispatch();
+            scheduleWake();
+        }
+        complete(grants);
+    }
+
+    /**
+     * Выдаёт разрешения ожидающим, пока состояние позволяет; вызывается под блокировкой, завершение future - вне её.
+     */
+    private List<Grant> dispatch() {
+        List<Grant> grants = new ArrayList<>();
+        while (!waiters.isEmpty()) {
+            if (waiters.peekFirst().isDone()) {
+                waiters.pollFirst();
+                continue;
+            }
+            Call call = tryEnter();
+            if (call == null) {
+                break;
+            }
+            grants.add(new Grant(waiters.pollFirst(), call));
+        }
+        return grants;
+    }
+
+    private void complete(List<Grant> grants) {
+        for (Grant grant : grants) {
+            if (!grant.waiter().complete(grant.call())) {
+                grant.call().ignore();
+            }
+        }
+    }
+
+    private record Grant(CompletableFuture<Call> waiter, Call call) {
+    }
+
+    /**
+     * Один пропущенный запрос. Исход сообщается ровно один раз: успехом, отказом или ignore (запрос не выполнялся).
+     */
+    public final class Call {
+        private final boolean trial;
+        private final long generation;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Call(boolean trial, long generation) {
+            this.trial = trial;
+            this.generation = generation;
+        }
+
+        public void success() {
+            if (done.compareAndSet(false, true)) {
+                record(this, true);
+            }
+        }
+
+        /**
+         * Таймаут, сетевая ошибка или ответ перегруженного сервера.
+         */
+        public void failure() {
+            if (done.compareAndSet(false, true)) {
+                record(this, false);
+            }
+        }
+
+        public void ignore() {
+            if (done.compareAndSet(false, true)) {
+                release(this);
+            }
+        }
+    }
+}
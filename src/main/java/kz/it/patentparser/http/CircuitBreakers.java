@@ -0,0 +1,104 @@
+package kz.it.patentparser.http;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Предохранители по источникам kazpatent: имя - хост и эндпоинт (например, gosreestr.kazpatent.kz/Details).
+ * Пока предохранитель открыт, воркеры парсеров паркуются на нём вместо повторов на полной скорости,
+ * и после восстановления сайта продолжают сами.
+ */
+@Component
+public class CircuitBreakers {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakers.class);
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "circuit-breakers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${http.breaker.window-size:50}")
+    private int windowSize;
+    @Value("${http.breaker.min-calls:20}")
+    private int minCalls;
+    @Value("${http.breaker.failure-rate:0.5}")
+    private double failureRate;
+    @Value("${http.breaker.open-ms:30000}")
+    private long openMs;
+    @Value("${http.breaker.max-open-ms:300000}")
+    private long maxOpenMs;
+    @Value("${http.breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    public CircuitBreaker forName(String name) {
+        return breakers.computeIfAbsent(name, n -> {
+            logger.info("Created circuit breaker {} (opens at {} failures of last {})", n, failureRate, windowSize);
+            return new CircuitBreaker(n, windowSize, minCalls, failureRate, TimeUnit.MILLISECONDS.toNanos(openMs),
+                    TimeUnit.MILLISECONDS.toNanos(maxOpenMs), halfOpenCalls, scheduler, System::nanoTime);
+        });
+    }
+
+    /**
+     * Источник запроса: хост и первые два сегмента пути, без номеров страниц и дат.
+     */
+    public static String endpointOf(URI url) {
+        String[] segments = url.getPath().split("/");
+        StringBuilder name = new StringBuilder(url.getHost());
+        int added = 0;
+        for (String segment : segments) {
+            if (!segment.isEmpty() && added < 2) {
+                name.append('/').append(segment);
+                added++;
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Фильтр WebClient: запрос ждёт, пока предохранитель эндпоинта пропустит его; 5xx, 429 и ошибки считаются отказами.
+     * Ставится перед фильтром лимитера, чтобы запрос на паузе не занимал разрешение хоста.
+     */
+    public ExchangeFilterFunction webClientFilter() {
+        return (request, next) -> Mono.defer(() -> {
+            CircuitBreaker breaker = forName(endpointOf(request.url()));
+            return Mono.fromFuture(breaker::acquireAsync)
+                    .flatMap(call -> next.exchange(request)
+                            .doOnNext(response -> {
+                                int status = response.statusCode().value();
+                                if (status >= 500 || status == 429) {
+                                    call.failure();
+                                } else {
+                                    call.success();
+                                }
+                            })
+                            .doOnError(e -> call.failure())
+                            .doOnCancel(call::ignore));
+        });
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        breakers.forEach((name, breaker) -> result.put(name, breaker.snapshot()));
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,107 @@
+package kz.it.patentparser.http;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Общие для всего приложения адаптивные лимитеры по хостам kazpatent.
+ * Через них идут все исходящие запросы: AsyncHttpClient госреестра, Jsoup, WebClient ebulletin и ImageService.
+ */
+@Component
+public class HostRateLimiters {
+    private static final Logger logger = LoggerFactory.getLogger(HostRateLimiters.class);
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "host-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${http.limiter.initial-limit:4}")
+    private double initialLimit;
+    @Value("${http.limiter.min-limit:1}")
+    private double minLimit;
+    @Value("${http.limiter.max-limit:32}")
+    private double maxLimit;
+    @Value("${http.limiter.backoff-ratio:0.5}")
+    private double backoffRatio;
+    @Value("${http.limiter.latency-backoff-ratio:0.9}")
+    private double latencyBackoffRatio;
+    @Value("${http.limiter.latency-tolerance:2.0}")
+    private double latencyTolerance;
+    @Value("${http.limiter.throttle-retries:3}")
+    private int throttleRetries;
+
+    public AdaptiveConcurrencyLimiter forHost(String host) {
+        return limiters.computeIfAbsent(host, h -> {
+            logger.info("Created adaptive limiter for {} (initial limit {}, max {})", h, initialLimit, maxLimit);
+            return new AdaptiveConcurrencyLimiter(h, initialLimit, minLimit, maxLimit, backoffRatio,
+                    latencyBackoffRatio, latencyTolerance, scheduler);
+        });
+    }
+
+    public AdaptiveConcurrencyLimiter forUrl(String url) {
+        return forHost(URI.create(url).getHost());
+    }
+
+    /**
+     * Фильтр WebClient: запрос ждёт разрешения лимитера своего хоста, ответ 429/503 повторяется
+     * после Retry-After (пауза хоста) до throttle-retries раз.
+     */
+    public ExchangeFilterFunction webClientFilter() {
+        return (request, next) -> Mono.defer(() -> {
+                    AdaptiveConcurrencyLimiter limiter = forHost(request.url().getHost());
+                    return Mono.fromFuture(limiter::acquireAsync)
+                            .flatMap(permit -> next.exchange(request)
+                                    .doOnNext(response -> permit.onResponse(response.statusCode().value(),
+                                            response.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER)))
+                                    .doOnError(e -> permit.onError())
+                                    .doOnCancel(permit::cancel));
+                })
+                .flatMap(response -> isThrottled(response)
+                        ? response.releaseBody().then(Mono.<ClientResponse>error(new ThrottledException(request.url(), response.statusCode().value())))
+                        : Mono.just(response))
+                .retryWhen(Retry.max(throttleRetries)
+                        .filter(ThrottledException.class::isInstance)
+                        .doBeforeRetry(signal -> logger.warn("{}, retry {}/{}", signal.failure().getMessage(), signal.totalRetries() + 1, throttleRetries))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        limiters.forEach((host, limiter) -> result.put(host, limiter.snapshot()));
+        return result;
+    }
+
+    private boolean isThrottled(ClientResponse response) {
+        int status = response.statusCode().value();
+        return status == 429 || status == 503;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public static class ThrottledException extends RuntimeException {
+        public ThrottledException(URI url, int status) {
+            super("Throttled by " + url.getHost() + " with HTTP " + status + " on " + url.getPath());
+        }
+    }
+}
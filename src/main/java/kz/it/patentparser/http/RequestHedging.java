@@ -0,0 +1,158 @@
+package kz.it.patentparser.http;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержки ответов по хостам и бюджет дублирующих (hedged) запросов.
+ * Если запрос висит дольше наблюдаемого перцентиля (percentile, по умолчанию p95) задержек хоста,
+ * вызывающий отправляет дубль и берёт первый ответ, второй запрос отменяется.
+ * Дубли ограничены бюджетом: каждый обычный запрос добавляет budget-ratio дубля (не больше budget-burst в запасе),
+ * и в полёте одновременно не больше max-in-flight дублей на хост - при общей деградации сайта дубли не удваивают нагрузку.
+ */
+@Component
+public class RequestHedging {
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final Map<String, HostLatency> hosts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "request-hedging");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${http.hedge.enabled:true}")
+    private boolean enabled;
+    @Value("${http.hedge.percentile:0.95}")
+    private double percentile;
+    @Value("${http.hedge.min-samples:50}")
+    private int minSamples;
+    @Value("${http.hedge.budget-ratio:0.05}")
+    private double budgetRatio;
+    @Value("${http.hedge.budget-burst:10}")
+    private double budgetBurst;
+    @Value("${http.hedge.max-in-flight:4}")
+    private int maxInFlight;
+
+    /**
+     * Задержка, после которой стоит отправить дубль запроса к хосту; -1 - дубль не нужен
+     * (выключено или мало замеров). Вызов учитывается как обычный запрос и пополняет бюджет дублей.
+     */
+    public long hedgeDelayNanos(String host) {
+        if (!enabled) {
+            return -1;
+        }
+        HostLatency latency = latency(host);
+        synchronized (latency) {
+            latency.requests++;
+            latency.budget = Math.min(budgetBurst, latency.budget + budgetRatio);
+            return latency.count < minSamples ? -1 : latency.threshold;
+        }
+    }
+
+    /**
+     * Занимает место под дубль; false - бюджет исчерпан или в полёте уже max-in-flight дублей.
+     */
+    public boolean tryStartHedge(String host) {
+        HostLatency latency = latency(host);
+        synchronized (latency) {
+            if (latency.budget < 1 || latency.hedgesInFlight >= maxInFlight) {
+                latency.denied++;
+                return false;
+            }
+            latency.budget--;
+            latency.hedgesInFlight++;
+            latency.hedges++;
+            return true;
+        }
+    }
+
+    /**
+     * Дубль завершён; won - его ответ пришёл раньше исходного запроса.
+     */
+    public void hedgeFinished(String host, boolean won) {
+        HostLatency latency = latency(host);
+        synchronized (latency) {
+            latency.hedgesInFlight--;
+            if (won) {
+                latency.hedgeWins++;
+            }
+        }
+    }
+
+    public void recordLatency(String host, long nanos) {
+        HostLatency latency = latency(host);
+        synchronized (latency) {
+            latency.samples[latency.next] = nanos;
+            latency.next = (latency.next + 1) % SAMPLE_SIZE;
+            latency.count = Math.min(SAMPLE_SIZE, latency.count + 1);
+            if (++latency.sinceRecompute >= RECOMPUTE_EVERY || latency.threshold == 0) {
+                latency.sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(latency.samples, latency.count);
+                Arrays.sort(sorted);
+                latency.threshold = sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+            }
+        }
+    }
+
+    public ScheduledFuture<?> schedule(Runnable task, long delayNanos) {
+        return scheduler.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        hosts.forEach((host, latency) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            synchronized (latency) {
+                values.put("thresholdMs", TimeUnit.NANOSECONDS.toMillis(latency.threshold));
+                values.put("samples", latency.count);
+                values.put("requests", latency.requests);
+                values.put("hedges", latency.hedges);
+                values.put("hedgeWins", latency.hedgeWins);
+                values.put("denied", latency.denied);
+                values.put("hedgesInFlight", latency.hedgesInFlight);
+                values.put("budget", Math.round(latency.budget * 100) / 100.0);
+            }
+            result.put(host, values);
+        });
+        return result;
+    }
+
+    private HostLatency latency(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostLatency());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Кольцо последних SAMPLE_SIZE задержек хоста; перцентиль пересчитывается раз в RECOMPUTE_EVERY замеров.
+     */
+    private static class HostLatency {
+        final long[] samples = new long[SAMPLE_SIZE];
+        int next;
+        int count;
+        int sinceRecompute;
+        long threshold;
+        double budget;
+        int hedgesInFlight;
+        long requests;
+        long hedges;
+        long hedgeWins;
+        long denied;
+    }
+}
@@ -0,0 +1,26 @@
+package kz.it.patentparser.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Последняя полностью сохранённая страница обхода госреестра для категории и направления пагинации.
+ */
+@Entity
+@Table(name = "crawl_checkpoints", uniqueConstraints = {@UniqueConstraint(name = "uk_crawl_checkpoint", columnNames = {"category", "direction"})})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CrawlCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String category;
+    private String direction;
+    private int lastCompletedPage;
+    private String lastDocNumber;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,22 @@
+package kz.it.patentparser.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Самый большой docNumber категории, уже пройденный инкрементальным обходом госреестра.
+ */
+@Entity
+@Table(name = "crawl_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CrawlWatermark {
+    @Id
+    private String category;
+    private Long highestDocNumber;
+    private LocalDateTime updatedAt;
+}
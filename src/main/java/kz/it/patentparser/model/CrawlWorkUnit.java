@@ -0,0 +1,38 @@
+package kz.it.patentparser.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Единица работы общей очереди обхода: узел забирает её SELECT ... FOR UPDATE SKIP LOCKED и держит аренду
+ * (leaseUntil), продлевая её heartbeat-ом. Единица с истёкшей арендой снова доступна другим узлам.
+ * runKey отличает запуски: один и тот же план, поставленный несколькими узлами, попадает в таблицу один раз.
+ */
+@Entity
+@Table(name = "crawl_work_units", uniqueConstraints = {@UniqueConstraint(name = "uk_crawl_work_unit", columnNames = {"run_key", "kind", "category", "range_from"})},
+        indexes = {@Index(name = "idx_crawl_work_unit_status", columnList = "status, lease_until")})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CrawlWorkUnit {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String runKey;
+    private String kind;
+    private String category;
+    private long rangeFrom;
+    private long rangeTo;
+    // PENDING, CLAIMED, DONE или FAILED
+    private String status;
+    private String owner;
+    private LocalDateTime leaseUntil;
+    private int attempts;
+    @Column(length = 1000)
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
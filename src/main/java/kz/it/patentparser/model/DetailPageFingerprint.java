@@ -0,0 +1,31 @@
+package kz.it.patentparser.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Версия страницы Details?docNumber=N на момент последнего разбора: хеш блока полей, валидаторы HTTP-кеша
+ * и хеш текста карточки этого номера в списке.
+ */
+@Entity
+@Table(name = "detail_page_fingerprints", uniqueConstraints = {@UniqueConstraint(name = "uk_detail_page_fingerprint", columnNames = {"category", "docNumber"})})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetailPageFingerprint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String category;
+    private String docNumber;
+    @Column(length = 64)
+    private String contentHash;
+    private String etag;
+    private String lastModified;
+    @Column(length = 64)
+    private String cardHash;
+    private LocalDateTime checkedAt;
+}
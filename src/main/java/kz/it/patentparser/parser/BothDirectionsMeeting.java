@@ -0,0 +1,49 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.enums.NavigationDirection;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общее состояние двух встречных обходов категории в режиме both. Каждый обход перед загрузкой страницы
+ * занимает её номер: если страница уже занята другим направлением, обходы встретились и этот обход заканчивается.
+ * docNumber карточек тоже отмечаются, так что карточка, переехавшая на соседнюю страницу
+ * из-за новых записей, не ставится в очередь детальных страниц второй раз.
+ */
+class BothDirectionsMeeting {
+    private final Set<Integer> pages = ConcurrentHashMap.newKeySet();
+    private final Set<String> docNumbers = ConcurrentHashMap.newKeySet();
+    private final Set<NavigationDirection> finished = EnumSet.noneOf(NavigationDirection.class);
+
+    /**
+     * false - страницу уже занял другой обход.
+     */
+    boolean claimPage(int page) {
+        return pages.add(page);
+    }
+
+    /**
+     * false - карточка уже поставлена в очередь одним из обходов.
+     */
+    boolean claimDocNumber(String docNumber) {
+        return docNumbers.add(docNumber);
+    }
+
+    synchronized boolean hasFinished(NavigationDirection direction) {
+        return finished.contains(direction);
+    }
+
+    /**
+     * Отмечает окончание обхода; true - закончились оба направления и состояние больше не нужно.
+     */
+    synchronized boolean finish(NavigationDirection direction) {
+        finished.add(direction);
+        return finished.containsAll(EnumSet.of(NavigationDirection.NEXT, NavigationDirection.PREVIOUS));
+    }
+
+    int claimedPages() {
+        return pages.size();
+    }
+}
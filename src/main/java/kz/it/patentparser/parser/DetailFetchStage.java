@@ -0,0 +1,78 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.dto.CardListingDto;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Стадия загрузки детальных страниц: браузер кладёт карточки в ограниченную очередь,
+ * пул потоков параллельно загружает и разбирает детальные страницы.
+ * Пока воркеры обрабатывают страницу N, браузер уже листает на N+1;
+ * если воркеры не успевают, submit() блокирует браузер, и очередь не растёт без предела.
+ */
+public class DetailFetchStage implements AutoCloseable {
+    private static final CardListingDto POISON = new CardListingDto(null, null, null, null);
+
+    private final BlockingQueue<CardListingDto> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Consumer<CardListingDto> handler;
+    private final Logger logger;
+
+    public DetailFetchStage(int workerCount, int queueCapacity, Consumer<CardListingDto> handler, Logger logger) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.handler = handler;
+        this.logger = logger;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::run, "detail-fetch-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    public void submit(CardListingDto listing) throws InterruptedException {
+        queue.put(listing);
+    }
+
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (true) {
+            CardListingDto listing;
+            try {
+                listing = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (listing == POISON) {
+                return;
+            }
+            try {
+                handler.accept(listing);
+            } catch (Exception e) {
+                logger.error("Error processing detail page {}", listing.getDetailUrl(), e);
+            }
+        }
+    }
+
+    /**
+     * Дожидается обработки всех карточек в очереди и останавливает воркеры.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        for (int i = 0; i < workers.size(); i++) {
+            queue.put(POISON);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package kz.it.patentparser.parser;
 
+import jakarta.annotation.PreDestroy;
 import kz.it.patentparser.dto.PatentDto;
+import kz.it.patentparser.http.CircuitBreakers;
+import kz.it.patentparser.http.HostRateLimiters;
 import kz.it.patentparser.model.Patent;
 import kz.it.patentparser.model.PatentAdditionalField;
 import kz.it.patentparser.service.PatentApiClient;
@@ -11,12 +14,16 @@ import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
@@ -28,10 +35,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -42,6 +51,7 @@ public class EbulletinPatentFetcher implements PatentParser{
     private static final Logger logger = LoggerFactory.getLogger(EbulletinPatentParser.class);
     private static final String MAIN_URL = "ebulletin.kazpatent.kz";
     private static final String BASE_URL = "https://ebulletin.kazpatent.kz:6002/bulletin/published";
+    private static final List<String> YEARS = List.of("2018", "2019", "2020", "2021", "2022", "2023", "2024", "2025");
     private static final Pattern YEAR_PATTERN = Pattern.compile("targetYear=(\\d{4})");
     private static final String IMAGE_SAVE_DIR = "C:\\Users\\user\\OneDrive - International Information Technology University\\Рисунки\\patentImages\\";
 
@@ -49,84 +59,122 @@ public class EbulletinPatentFetcher implements PatentParser{
     private final PatentService patentService;
     private final PatentApiClient patentApiClient;
     private final WebClient webClient;
-
-
-    public EbulletinPatentFetcher(PatentService patentService, PatentValidator validator, PatentApiClient patentApiClient, WebClient.Builder webClientBuilder) {
+    // Пакеты пишутся в базу на отдельном потоке, не занимая потоки WebClient
+    private final Scheduler writeScheduler = Schedulers.newSingle("ebulletin-writer", true);
+
+    @Value("${ebulletin.pipeline.year-concurrency:2}")
+    private int yearConcurrency;
+    @Value("${ebulletin.pipeline.request-concurrency:4}")
+    private int requestConcurrency;
+    @Value("${ebulletin.pipeline.batch-size:200}")
+    private int batchSize;
+    @Value("${ebulletin.pipeline.batch-timeout-ms:2000}")
+    private long batchTimeoutMs;
+
+    public EbulletinPatentFetcher(PatentService patentService, PatentValidator validator, PatentApiClient patentApiClient, WebClient.Builder webClientBuilder, HostRateLimiters rateLimiters, CircuitBreakers breakers) {
         this.patentService = patentService;
         this.validator = validator;
         this.patentApiClient = patentApiClient;
-        this.webClient = webClientBuilder.baseUrl(BASE_URL).build();
+        this.webClient = webClientBuilder.baseUrl(BASE_URL)
+                .filter(breakers.webClientFilter())
+                .filter(rateLimiters.webClientFilter())
+                .build();
 
     }
 
+    public static List<String> getYears() {
+        return YEARS;
+    }
+
     @Override
     public List<Patent> parseAll(String from, boolean both) {
-        List<Patent> patents = new ArrayList<>();
-//        ChromeOptions options = new ChromeOptions();
-//        options.addArguments("--disable-dev-shm-usage");
-//        options.addArguments("--no-sandbox");
-//        WebDriver driver = new ChromeDriver(options);
-
+        logger.info("Starting patent fetching process...");
         try {
-//            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(20));
-
-            logger.info("Starting patent fetching process...");
-//            driver.get("https://qazpatent.kz/ru/electronic-bulletin");
-//            logger.info("Opened Ebulleting Kazpatent website.");
-
-//            WebElement contentDiv = wait.until(ExpectedConditions.visibilityOfElementLocated(By.cssSelector(".content-m.content-default")));
-
-//            List<WebElement> links = contentDiv.findElements(By.tagName("a"));
-            List<String> years = Arrays.asList("2018", "2019", "2020", "2021", "2022", "2023", "2024", "2025");
-
-
-            for (String year : years) {
-                logger.info("Processing year: {}", year);
-                String url = BASE_URL + "/select_bull_list_published?year=" + year;
-                LinkedHashMap<Integer, String> dates = patentApiClient.fetchDatesForYear(Integer.parseInt(year)).block();
-
-                if (dates == null || dates.isEmpty()) {
-                    logger.warn("No dates found for year: {}", year);
-                    continue;
-                }
-
-                for (Map.Entry<Integer, String> date : dates.entrySet()) {
-                    for (Map.Entry<String, String> entry : getCategories().entrySet()) {
-                        String category = entry.getKey();
-                        String categoryValue = entry.getValue();
-
-                        logger.info("Processing category: {} on index {} and date {}", category, date.getKey(), date.getValue());
-
-                        try {
-                            patents = patentApiClient.fetchPatents(categoryValue, date.getKey(), date.getValue())
-                                    .map(dto -> convertToEntity(dto, category))
-                                    .collect(Collectors.toList())
-                                    .block();
-
-                            if (patents != null && !patents.isEmpty()) {
-                                logger.info("Fetched {} patents for category: {} on index: {}", patents.size(), category, date.getKey());
-                                savePatentData(patents);
-                            } else {
-                                logger.warn("No patents found for category: {} on date: {} (Page {})", category, date, date.getKey());
-                            }
-
-                        } catch (WebClientResponseException e) {
-                            logger.error("HTTP error while fetching patents for category: {} on date: {} - Status: {} - Response: {}",
-                                    category, date.getValue(), e.getStatusCode(), e.getResponseBodyAsString(), e);
-                        } catch (Exception e) {
-                            logger.error("Unexpected error while fetching patents for category: {} on date: {}", category, date.getValue(), e);
-                        }
+            ingest(Flux.fromIterable(YEARS).map(Integer::parseInt), new AtomicInteger()).block();
+        } catch (Exception e) {
+            logger.error("Error parsing Ebulletin: " + e.getMessage(), e);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Все бюллетени года по всем категориям; отдельно вызывается как единица общей очереди обхода.
+     * Ошибка загрузки списка бюллетеней года и неудачная запись пакета пробрасываются, чтобы единица ушла на повтор;
+     * уже сохранённые патенты при повторе отсеиваются как дубликаты.
+     */
+    public void parseYear(int year) {
+        AtomicInteger failedBatches = new AtomicInteger();
+        ingest(Flux.just(year), failedBatches).block();
+        if (failedBatches.get() > 0) {
+            throw new IllegalStateException(failedBatches.get() + " ebulletin batches of year " + year + " were not saved");
+        }
+    }
+
+    /**
+     * Загрузка ebulletin одним реактивным конвейером: годы -> бюллетени года -> категории бюллетеня -> патенты.
+     * Параллелизм каждого уровня задан явно (year-concurrency, request-concurrency), запись идёт пакетами
+     * по batch-size патентов (или раз в batch-timeout-ms) на отдельном потоке записи. Пакеты пишутся по одному
+     * и bufferTimeout учитывает спрос, поэтому при медленной базе конвейер перестаёт запрашивать новые страницы API,
+     * а не копит патенты в памяти. Ошибка одной категории бюллетеня только пишется в лог, как и раньше;
+     * ошибка записи пакета тоже не останавливает конвейер - пакет пропускается и считается в failedBatches.
+     * Возвращает число сохранённых патентов.
+     */
+    private Mono<Long> ingest(Flux<Integer> years, AtomicInteger failedBatches) {
+        long start = System.currentTimeMillis();
+        Map<String, String> categories = getCategories();
+        return years
+                .flatMap(year -> patentApiClient.fetchDatesForYear(year)
+                        .doOnNext(dates -> logger.info("Fetched {} dates for year: {}, {}", dates.size(), year, dates))
+                        .flatMapIterable(LinkedHashMap::entrySet), yearConcurrency)
+                .flatMapIterable(date -> categories.entrySet().stream()
+                        .map(category -> new BulletinRequest(date.getKey(), date.getValue(), category.getKey(), category.getValue()))
+                        .toList())
+                .flatMap(this::fetchBulletin, requestConcurrency)
+                .bufferTimeout(batchSize, Duration.ofMillis(batchTimeoutMs), true)
+                .concatMap(batch -> Mono.fromCallable(() -> savePatentData(batch))
+                        .subscribeOn(writeScheduler)
+                        .onErrorResume(e -> {
+                            failedBatches.incrementAndGet();
+                            logger.error("Error saving ebulletin batch of {} patents, skipping it", batch.size(), e);
+                            return Mono.just(0L);
+                        }), 1)
+                .reduce(0L, Long::sum)
+                .doOnNext(saved -> logger.info("Ebulletin ingestion saved {} patents in {} ms", saved, System.currentTimeMillis() - start));
+    }
+
+    private Flux<Patent> fetchBulletin(BulletinRequest request) {
+        logger.info("Processing category: {} on index {} and date {}", request.category(), request.index(), request.date());
+        return patentApiClient.fetchPatents(request.endpoint(), request.index(), request.date())
+                .map(dto -> convertToEntity(dto, request.category()))
+                .collectList()
+                .doOnNext(patents -> {
+                    if (patents.isEmpty()) {
+                        logger.warn("No patents found for category: {} on date: {} (Page {})", request.category(), request.date(), request.index());
+                    } else {
+                        logger.info("Fetched {} patents for category: {} on index: {}", patents.size(), request.category(), request.index());
                     }
-                }
-                logger.info("Fetched {} dates for year: {}, {}", dates.size(), year, dates);
-            }
+                })
+                .flatMapIterable(patents -> patents)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    logger.error("HTTP error while fetching patents for category: {} on date: {} - Status: {} - Response: {}",
+                            request.category(), request.date(), e.getStatusCode(), e.getResponseBodyAsString(), e);
+                    return Flux.empty();
+                })
+                .onErrorResume(e -> {
+                    logger.error("Unexpected error while fetching patents for category: {} on date: {}", request.category(), request.date(), e);
+                    return Flux.empty();
+                });
+    }
 
+    /**
+     * Одна страница API: категория бюллетеня с индексом index от даты date.
+     */
+    private record BulletinRequest(int index, String date, String category, String endpoint) {
+    }
 
-        } catch (Exception e) {
-            logger.error("Error parsing Ebulletin: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return patents;
+    @PreDestroy
+    public void shutdown() {
+        writeScheduler.dispose();
     }
 
     private Map<String, String> getCategories() {
@@ -137,7 +185,7 @@ public class EbulletinPatentFetcher implements PatentParser{
         return categories;
     }
 
-    private void savePatentData(List<Patent> patents) {
+    private long savePatentData(List<Patent> patents) {
         logger.info("Saving patents to database...");
         //check for duplicates
         List<Patent> existingPatents = patentService.findAllBySecurityDocNumberIn(patents.stream()
@@ -153,7 +201,7 @@ public class EbulletinPatentFetcher implements PatentParser{
 
         if (patents.isEmpty()) {
             logger.info("No new patents to save.");
-            return;
+            return 0;
         }
 
         patentService.savePatents(patents, logger);
@@ -171,6 +219,7 @@ public class EbulletinPatentFetcher implements PatentParser{
         } else {
             logger.info("No additional fields found to save.");
         }
+        return patents.size();
     }
 
 
@@ -3,17 +3,19 @@ package kz.it.patentparser.parser;
 import kz.it.patentparser.dto.PatentDto;
 import kz.it.patentparser.model.Patent;
 import kz.it.patentparser.model.PatentAdditionalField;
+import kz.it.patentparser.selenium.BrowserProfile;
+import kz.it.patentparser.selenium.WebDriverPool;
+import kz.it.patentparser.selenium.WebDriverPool.PooledWebDriver;
 import kz.it.patentparser.service.PatentApiClient;
 import kz.it.patentparser.service.PatentService;
 import kz.it.patentparser.validator.PatentValidator;
 import org.openqa.selenium.*;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
@@ -36,22 +38,24 @@ public class EbulletinPatentParser implements PatentParser {
     private final PatentValidator validator;
     private final PatentService patentService;
     private final PatentApiClient patentApiClient;
+    private final WebDriverPool webDriverPool;
 
-    public EbulletinPatentParser(PatentService patentService, PatentValidator validator, PatentApiClient patentApiClient) {
+    @Value("${ebulletin.browser-profile:LEAN}")
+    private BrowserProfile browserProfile;
+
+    public EbulletinPatentParser(PatentService patentService, PatentValidator validator, PatentApiClient patentApiClient, WebDriverPool webDriverPool) {
         this.patentService = patentService;
         this.validator = validator;
         this.patentApiClient = patentApiClient;
+        this.webDriverPool = webDriverPool;
     }
 
     @Override
     public List<Patent> parseAll(String from, boolean both) {
         List<Patent> patents = new ArrayList<>();
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--no-sandbox");
-        WebDriver driver = new ChromeDriver(options);
 
-        try {
+        try (PooledWebDriver lease = webDriverPool.borrow(browserProfile)) {
+            WebDriver driver = lease.driver();
             WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(20));
 
             logger.info("Starting patent parsing process...");
@@ -85,8 +89,6 @@ public class EbulletinPatentParser implements PatentParser {
         } catch (Exception e) {
             logger.error("Error parsing Ebulletin: " + e.getMessage());
             e.printStackTrace();
-        } finally {
-            driver.quit();
         }
         return patents;
     }
@@ -97,7 +99,7 @@ public class EbulletinPatentParser implements PatentParser {
 
         parseFromYear(wait, driver);
     }
-    private Map<String, String> getCategories() {
+    public Map<String, String> getCategories() {
         Map<String, String> categories = new LinkedHashMap<>();
         categories.put("Изобретения", "select_iz_patent");
         categories.put("Полезная модели", "select_pm_patent");
@@ -209,7 +211,7 @@ public class EbulletinPatentParser implements PatentParser {
     }
 
 
-    private Patent convertToEntity(PatentDto dto, String category) {
+    public Patent convertToEntity(PatentDto dto, String category) {
         Patent patent = new Patent();
         patent.setPatentSite(BASE_URL);
         patent.setCategory(category);
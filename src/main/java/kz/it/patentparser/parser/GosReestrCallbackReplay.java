@@ -0,0 +1,225 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.dto.CardListingDto;
+import kz.it.patentparser.selenium.PageReadiness;
+import kz.it.patentparser.service.GosReestrDetailClient;
+import org.asynchttpclient.Response;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Callback-запрос CardView cvReestr, снятый с браузера и повторяемый по HTTP для любой страницы списка.
+ * Браузер открывает категорию, ставит размер страницы 200 и делает один переход страницы - из этого
+ * перехода берутся тело запроса (callbackState cvReestr с фильтром, сортировкой и размером страницы) и cookies.
+ * Дальше каждая страница - один POST с заменённой командой пейджера, карточки разбираются Jsoup.
+ */
+class GosReestrCallbackReplay {
+    private static final String CAPTURE_SCRIPT =
+            "if (!window.__kpCallbacks) {" +
+            "  window.__kpCallbacks = [];" +
+            "  var open = XMLHttpRequest.prototype.open, send = XMLHttpRequest.prototype.send;" +
+            "  XMLHttpRequest.prototype.open = function (method, url) { this.__kpUrl = url; return open.apply(this, arguments); };" +
+            "  XMLHttpRequest.prototype.send = function (body) {" +
+            "    if (typeof body === 'string' && body.indexOf('DXCallbackName=cvReestr') >= 0) {" +
+            "      window.__kpCallbacks.push({ url: this.__kpUrl, body: body });" +
+            "    }" +
+            "    return send.apply(this, arguments);" +
+            "  };" +
+            "}" +
+            "window.__kpCallbacks.length = 0;";
+    private static final String CAPTURED_SCRIPT =
+            "var c = window.__kpCallbacks; return c && c.length ? [c[c.length - 1].url, c[c.length - 1].body] : null;";
+    private static final String GOTO_SECOND_PAGE_SCRIPT =
+            "var cv = window.cvReestr; if (!cv || cv.GetPageCount() < 2) { return false; } cv.GotoPage(1); return true;";
+
+    private static final String CALLBACK_ARGUMENT = "__DXCallbackArgument";
+    // Команда пейджера внутри аргумента: GB|<длина>;12|PAGERONCLICK<длина>|PN<индекс страницы>
+    private static final Pattern PAGER_COMMAND = Pattern.compile("GB\\|(\\d+);(\\d+\\|PAGERONCLICK)(\\d+)\\|PN(\\d+)");
+    private static final Pattern PAGE_SUMMARY = Pattern.compile("Страница (\\d+) из (\\d+)");
+
+    private final String category;
+    private final String url;
+    private final Map<String, String> form;
+    private final String cookieHeader;
+
+    private GosReestrCallbackReplay(String category, String url, Map<String, String> form, String cookieHeader) {
+        this.category = category;
+        this.url = url;
+        this.form = form;
+        this.cookieHeader = cookieHeader;
+    }
+
+    /**
+     * Переходит на вторую страницу открытой категории и снимает отправленный при этом callback.
+     * Возвращает null, если страница одна или запрос не похож на команду пейджера.
+     */
+    static GosReestrCallbackReplay capture(WebDriver driver, String category, PageReadiness readiness) {
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+        js.executeScript(CAPTURE_SCRIPT);
+        if (!Boolean.TRUE.equals(js.executeScript(GOTO_SECOND_PAGE_SCRIPT))) {
+            return null;
+        }
+        readiness.awaitCardsReady(driver);
+
+        Object captured = js.executeScript(CAPTURED_SCRIPT);
+        if (!(captured instanceof List<?> request) || request.size() != 2) {
+            return null;
+        }
+        String url = String.valueOf(request.get(0));
+        if (url.startsWith("/")) {
+            url = GosReestrDetailClient.BASE_URL + url;
+        }
+        Map<String, String> form = decodeForm(String.valueOf(request.get(1)));
+        String argument = form.get(CALLBACK_ARGUMENT);
+        if (argument == null || !PAGER_COMMAND.matcher(argument).find()) {
+            return null;
+        }
+
+        String cookieHeader = driver.manage().getCookies().stream()
+                .map(cookie -> cookie.getName() + "=" + cookie.getValue())
+                .collect(Collectors.joining("; "));
+        return new GosReestrCallbackReplay(category, url, form, cookieHeader);
+    }
+
+    String getCategory() {
+        return category;
+    }
+
+    /**
+     * Загружает страницу (индекс с 0) одним POST и возвращает её карточки.
+     * Если сервер вернул не ту страницу, бросает IllegalStateException - вызывающий переходит на браузер.
+     */
+    List<CardListingDto> fetchPage(GosReestrDetailClient client, int pageIndex) throws InterruptedException, ExecutionException {
+        return fetchPageAsync(client, pageIndex).get();
+    }
+
+    /**
+     * То же без ожидания ответа: future завершается карточками страницы или ошибкой (в том числе IllegalStateException).
+     */
+    CompletableFuture<List<CardListingDto>> fetchPageAsync(GosReestrDetailClient client, int pageIndex) throws InterruptedException {
+        Map<String, String> pageForm = new LinkedHashMap<>(form);
+        pageForm.put(CALLBACK_ARGUMENT, withPageIndex(form.get(CALLBACK_ARGUMENT), pageIndex));
+
+        return client.postForm(url, encodeForm(pageForm), cookieHeader)
+                .thenApply(response -> parsePage(response, pageIndex));
+    }
+
+    private List<CardListingDto> parsePage(Response response, int pageIndex) {
+        if (response.getStatusCode() != 200) {
+            throw new IllegalStateException("Callback replay returned HTTP " + response.getStatusCode());
+        }
+
+        String html = extractHtml(response.getResponseBody(StandardCharsets.UTF_8));
+        Matcher summary = PAGE_SUMMARY.matcher(html);
+        if (summary.find() && Integer.parseInt(summary.group(1)) != pageIndex + 1) {
+            throw new IllegalStateException("Callback replay returned page " + summary.group(1) + " instead of " + (pageIndex + 1));
+        }
+        return parseCards(html);
+    }
+
+    private List<CardListingDto> parseCards(String html) {
+        Document doc = Jsoup.parse(html, GosReestrDetailClient.BASE_URL);
+        List<CardListingDto> listings = new ArrayList<>();
+        for (Element card : doc.select("div.dxcvFlowCard_Material")) {
+            Element link = card.selectFirst("a[href*=Details]");
+            if (link == null) {
+                continue;
+            }
+            String detailUrl = link.absUrl("href");
+            String docNumber = detailUrl.substring(detailUrl.lastIndexOf("=") + 1);
+
+            // Тот же построчный вид "Подпись:\nЗначение", что отдаёт WebElement.getText() в браузере
+            StringBuilder cardText = new StringBuilder();
+            for (Element item : card.select("div.dxflItem_Material")) {
+                Element caption = item.selectFirst("span.dxflCaption_Material");
+                Element value = item.selectFirst("div.dxflNestedControlCell_Material");
+                if (caption != null && value != null) {
+                    cardText.append(caption.text()).append('\n').append(value.text()).append('\n');
+                }
+            }
+            listings.add(new CardListingDto(category, detailUrl, docNumber, cardText.toString()));
+        }
+        return listings;
+    }
+
+    private static String withPageIndex(String argument, int pageIndex) {
+        Matcher matcher = PAGER_COMMAND.matcher(argument);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No pager command in callback argument");
+        }
+        String oldTail = matcher.group(3) + "|PN" + matcher.group(4);
+        String command = "PN" + pageIndex;
+        String newTail = command.length() + "|" + command;
+        int groupLength = Integer.parseInt(matcher.group(1)) + newTail.length() - oldTail.length();
+        return argument.substring(0, matcher.start())
+                + "GB|" + groupLength + ";" + matcher.group(2) + newTail
+                + argument.substring(matcher.end());
+    }
+
+    /**
+     * Ответ DevExpress - JS-объект вида ({'id':1,'result':{'html':'...'}}), HTML лежит в строковом литерале.
+     * Если поля html нет, ответ считается готовой разметкой.
+     */
+    private static String extractHtml(String body) {
+        int start = body.indexOf("'html':'");
+        if (start < 0) {
+            return body;
+        }
+        StringBuilder html = new StringBuilder();
+        for (int i = start + 8; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\'') {
+                break;
+            }
+            if (c != '\\' || i + 1 >= body.length()) {
+                html.append(c);
+                continue;
+            }
+            char escaped = body.charAt(++i);
+            switch (escaped) {
+                case 'n' -> html.append('\n');
+                case 'r' -> html.append('\r');
+                case 't' -> html.append('\t');
+                case 'u' -> {
+                    html.append((char) Integer.parseInt(body.substring(i + 1, i + 5), 16));
+                    i += 4;
+                }
+                default -> html.append(escaped);
+            }
+        }
+        return html.toString();
+    }
+
+    private static Map<String, String> decodeForm(String body) {
+        Map<String, String> form = new LinkedHashMap<>();
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            form.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return form;
+    }
+
+    private static String encodeForm(Map<String, String> form) {
+        return form.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+    }
+}
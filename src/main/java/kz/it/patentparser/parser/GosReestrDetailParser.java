@@ -0,0 +1,188 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.model.Patent;
+import kz.it.patentparser.model.PatentAdditionalField;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Разбор страницы gosreestr.kazpatent.kz/{Category}/Details?docNumber=N.
+ * Общий для браузерного и HTTP парсеров, чтобы поля заполнялись одинаково.
+ * <p>
+ * Из всей страницы нужны только блоки div.detial_plan_info и div.plan_img. Вместо DOM всей страницы
+ * (шапка, меню, скрипты) в тексте ответа ищутся эти два блока до их закрывающего &lt;/div&gt; с учётом вложенных div,
+ * и Jsoup разбирает только их - вложенные и следующие друг за другом списки полей попадают во фрагмент целиком.
+ * Если блока полей нет, он не закрыт или во фрагменте нет полей, страница разбирается целиком, как раньше.
+ */
+@Component
+public class GosReestrDetailParser {
+    private static final Logger logger = LoggerFactory.getLogger(GosReestrDetailParser.class);
+    public static final String PATENT_SITE = "gosreestr.kazpatent.kz";
+
+    private static final String DETAILS_MARKER = "detial_plan_info";
+    private static final String IMAGE_MARKER = "plan_img";
+
+    private final AtomicLong selective = new AtomicLong();
+    private final AtomicLong fullDom = new AtomicLong();
+    private final AtomicLong empty = new AtomicLong();
+
+    /**
+     * Корень с блоком полей страницы или null, если полей нет - это пустая карточка
+     * (сайт так отвечает на несуществующие номера).
+     */
+    public Element extractDetails(String html, String baseUrl) {
+        Document fragment = selectiveFragment(html, baseUrl);
+        if (fragment != null && hasDetails(fragment)) {
+            selective.incrementAndGet();
+            return fragment;
+        }
+
+        Document doc = Jsoup.parse(html, baseUrl);
+        if (!hasDetails(doc)) {
+            empty.incrementAndGet();
+            return null;
+        }
+        fullDom.incrementAndGet();
+        if (fragment != null) {
+            logger.warn("Selective extraction missed the details block of {}, parsed full page", baseUrl);
+        }
+        return doc;
+    }
+
+    /**
+     * Разбор ответа целиком; для пустой карточки возвращается патент без полей.
+     */
+    public Patent parse(String html, String baseUrl, String docNumber, String category) {
+        Element details = extractDetails(html, baseUrl);
+        return parse(details != null ? details : new Document(baseUrl), docNumber, category);
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("selective", selective.get());
+        values.put("fullDom", fullDom.get());
+        values.put("empty", empty.get());
+        return values;
+    }
+
+    private static boolean hasDetails(Element root) {
+        return !root.select("div.detial_plan_info ul li").isEmpty();
+    }
+
+    /**
+     * Разметка блока полей и блока картинки, каждый от открывающего &lt;div&gt; до парного ему &lt;/div&gt;,
+     * разобранная как фрагмент. null - если блока полей в ответе нет или он не закрыт.
+     */
+    private static Document selectiveFragment(String html, String baseUrl) {
+        String details = divSlice(html, DETAILS_MARKER);
+        if (details == null) {
+            return null;
+        }
+        String image = divSlice(html, IMAGE_MARKER);
+        return Jsoup.parseBodyFragment(image != null ? details + image : details, baseUrl);
+    }
+
+    /**
+     * Текст от открывающего &lt;div ...&gt;, в атрибутах которого есть marker, до парного ему &lt;/div&gt;.
+     * Вхождения marker вне тега div (стили, скрипты) пропускаются; null - если блок не закрыт.
+     */
+    private static String divSlice(String html, String marker) {
+        int from = 0;
+        int index;
+        while ((index = html.indexOf(marker, from)) >= 0) {
+            from = index + marker.length();
+            int tagStart = html.lastIndexOf('<', index);
+            if (tagStart < 0 || html.indexOf('>', tagStart) < index || !isDivOpen(html, tagStart)) {
+                continue;
+            }
+            int end = matchingDivEnd(html, tagStart);
+            return end < 0 ? null : html.substring(tagStart, end);
+        }
+        return null;
+    }
+
+    /**
+     * Позиция сразу после &lt;/div&gt;, закрывающего div, который открывается в start, или -1.
+     */
+    private static int matchingDivEnd(String html, int start) {
+        int depth = 0;
+        int position = start;
+        while ((position = html.indexOf('<', position)) >= 0) {
+            if (isDivOpen(html, position)) {
+                depth++;
+            } else if (html.startsWith("</div", position)) {
+                depth--;
+                int close = html.indexOf('>', position);
+                if (close < 0) {
+                    return -1;
+                }
+                if (depth == 0) {
+                    return close + 1;
+                }
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private static boolean isDivOpen(String html, int position) {
+        if (!html.startsWith("<div", position) || position + 4 >= html.length()) {
+            return false;
+        }
+        char next = html.charAt(position + 4);
+        return next == '>' || next == '/' || Character.isWhitespace(next);
+    }
+
+    public Patent parse(Element doc, String docNumber, String category) {
+        Patent patent = new Patent();
+        patent.setDocNumber(docNumber);
+        patent.setCategory(category);
+        patent.setPatentSite(PATENT_SITE);
+
+        List<PatentAdditionalField> additionalFields = new ArrayList<>();
+
+        Elements fields = doc.select("div.detial_plan_info ul li"); // Select all list items
+
+        GosReestrExtractionSchema schema = GosReestrExtractionSchema.forCategory(category);
+        for (Element field : fields) {
+            String label = GosReestrExtractionSchema.cleanLabel(field.select("strong").text());
+            String value = field.select("span").text().trim();
+
+            if (label.isEmpty() || value.isEmpty()) {
+                continue;
+            }
+
+            GosReestrExtractionSchema.DetailField handler = schema.detailField(label);
+            if (handler == null) {
+                additionalFields.add(new PatentAdditionalField(patent, label, value));
+            } else if (handler.link()) {
+                // Для описаний сохраняется абсолютная ссылка на документ
+                additionalFields.add(new PatentAdditionalField(patent, label, field.select("span a").attr("abs:href")));
+            } else {
+                handler.setter().accept(patent, value);
+            }
+        }
+
+        Element imgElement = doc.selectFirst("div.plan_img5 img, div.plan_img img");
+        if (imgElement != null) {
+            String imgUrl = imgElement.absUrl("src");
+            if (!imgUrl.isEmpty()) {
+                patent.setImageUrl(imgUrl);
+            }
+        }
+
+        patent.setAdditionalFields(additionalFields);
+        return patent;
+    }
+}
@@ -0,0 +1,171 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.model.Patent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static kz.it.patentparser.util.TransliterationUtil.fixMixedCharacters;
+
+/**
+ * Схема извлечения полей госреестра: какая подпись детальной страницы пишется в какое поле Patent
+ * и какие поля берутся из текста карточки списка. Схема собирается один раз - подписи детальной страницы лежат
+ * в HashMap, шаблоны карточки скомпилированы заранее. Новая подпись категории - одна строка в builder'е;
+ * подписи, которых нет в схеме, сохраняются как дополнительные поля.
+ */
+public final class GosReestrExtractionSchema {
+    private static final Logger logger = LoggerFactory.getLogger(GosReestrExtractionSchema.class);
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    // Коды ИНИД вида "(21)" и окончания вида "(-ы)" в подписях детальной страницы; каждая пара скобок отдельно,
+    // иначе "(72) Автор(-ы)" целиком превращается в пустую подпись
+    private static final Pattern LABEL_CODES = Pattern.compile("\\([^)]*\\)");
+
+    private static final Builder COMMON = new Builder()
+            .text("№ охранного документа", Patent::setSecurityDocNumber)
+            .text("№ регистрации", Patent::setRegistrationNumber)
+            .text("Статус", Patent::setStatus)
+            .text("Номер заявки", Patent::setApplicationNumber)
+            .date("Дата подачи заявки", Patent::setFilingDate)
+            // Дата регистрации приходит с временем, берутся первые 10 символов
+            .field("Дата регистрации", (patent, value) -> patent.setRegistrationDate(LocalDate.parse(value.substring(0, 10), DATE_FORMATTER)))
+            .date("Срок действия", Patent::setExpirationDate)
+            .text("Название", Patent::setTitle)
+            .text("МПК", Patent::setIpc)
+            .text("МКПО", Patent::setMkpo)
+            .text("МКТУ", Patent::setMkpo)
+            .text("Номер бюллетеня", Patent::setBulletinNumber)
+            .date("Дата бюллетеня", Patent::setBulletinDate)
+            .text("Наименование сорта, породы", Patent::setSortName)
+            .text("Патентообладатель", Patent::setPatentHolder)
+            // На странице "Автор(-ы)", после очистки подписи - "Автор"
+            .text("Автор", Patent::setAuthors)
+            .text("Владелец", Patent::setOwner)
+            .link("Реферат/Описание")
+            .link("Описания")
+            .cardText("Название:?", (patent, value) -> patent.setTitle(fixMixedCharacters(value)))
+            // Статус карточки - запасной: при разборе детальной страницы побеждает её статус (mergePatentData),
+            // сам по себе он пишется только в refreshFromCard, когда изменилась лишь карточка
+            .cardText("Статус:?", Patent::setStatus)
+            .cardText("Номер бюллетеня:?", Patent::setBulletinNumber)
+            .cardDate("Дата бюллетеня:?", Patent::setBulletinDate)
+            .cardText("Автор\\(-ы\\)?:?", Patent::setAuthors)
+            .cardText("Наименование сорта, породы:?", Patent::setSortName);
+
+    // У всех категорий пока общий набор подписей; отличия категории - отдельная схема через COMMON.copy() в forCategory
+    private static final GosReestrExtractionSchema DEFAULT = COMMON.build();
+
+    private final Map<String, DetailField> detailFields;
+    private final List<CardField> cardFields;
+
+    private GosReestrExtractionSchema(Map<String, DetailField> detailFields, List<CardField> cardFields) {
+        this.detailFields = detailFields;
+        this.cardFields = cardFields;
+    }
+
+    public static GosReestrExtractionSchema forCategory(String category) {
+        return DEFAULT;
+    }
+
+    /**
+     * Подпись без кодов в скобках. Регулярное выражение применяется, только если скобка вообще есть.
+     */
+    public static String cleanLabel(String rawLabel) {
+        String label = rawLabel.indexOf('(') < 0 ? rawLabel : LABEL_CODES.matcher(rawLabel).replaceAll("");
+        return label.trim();
+    }
+
+    /**
+     * Обработчик подписи детальной страницы или null, если подпись - дополнительное поле.
+     */
+    public DetailField detailField(String label) {
+        return detailFields.get(label);
+    }
+
+    /**
+     * Поля из текста карточки списка. Подпись без значения на той же строке поле не трогает.
+     */
+    public void applyCardText(Patent patent, String cardText) {
+        for (CardField field : cardFields) {
+            Matcher matcher = field.pattern().matcher(cardText);
+            if (matcher.find()) {
+                String value = matcher.group(1).trim();
+                if (!value.isEmpty()) {
+                    field.setter().accept(patent, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Подпись детальной страницы: либо поле Patent (setter), либо ссылка, которая сохраняется
+     * дополнительным полем с абсолютным адресом вместо текста.
+     */
+    public record DetailField(BiConsumer<Patent, String> setter, boolean link) {
+    }
+
+    private record CardField(Pattern pattern, BiConsumer<Patent, String> setter) {
+    }
+
+    private static class Builder {
+        private final Map<String, DetailField> detailFields = new HashMap<>();
+        private final List<CardField> cardFields = new ArrayList<>();
+
+        Builder text(String label, BiConsumer<Patent, String> setter) {
+            return field(label, setter);
+        }
+
+        Builder date(String label, BiConsumer<Patent, LocalDate> setter) {
+            return field(label, (patent, value) -> setter.accept(patent, LocalDate.parse(value, DATE_FORMATTER)));
+        }
+
+        Builder field(String label, BiConsumer<Patent, String> setter) {
+            detailFields.put(label, new DetailField(setter, false));
+            return this;
+        }
+
+        Builder link(String label) {
+            detailFields.put(label, new DetailField(null, true));
+            return this;
+        }
+
+        /**
+         * Поле карточки списка: подпись (регулярное выражение) и значение до конца той же строки.
+         */
+        Builder cardText(String labelRegex, BiConsumer<Patent, String> setter) {
+            cardFields.add(new CardField(Pattern.compile(labelRegex + " *:? *(.*)"), setter));
+            return this;
+        }
+
+        Builder cardDate(String labelRegex, BiConsumer<Patent, LocalDate> setter) {
+            cardFields.add(new CardField(Pattern.compile(labelRegex + "\\s*:?\\s*(\\d{2}\\.\\d{2}\\.\\d{4})"), (patent, value) -> {
+                try {
+                    setter.accept(patent, LocalDate.parse(value, DATE_FORMATTER));
+                } catch (DateTimeParseException e) {
+                    logger.warn("Error parsing date: {}", value);
+                }
+            }));
+            return this;
+        }
+
+        Builder copy() {
+            Builder copy = new Builder();
+            copy.detailFields.putAll(detailFields);
+            copy.cardFields.addAll(cardFields);
+            return copy;
+        }
+
+        GosReestrExtractionSchema build() {
+            return new GosReestrExtractionSchema(Map.copyOf(detailFields), List.copyOf(cardFields));
+        }
+    }
+}
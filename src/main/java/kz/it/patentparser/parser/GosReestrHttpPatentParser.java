@@ -0,0 +1,471 @@
+package kz.it.patentparser.parser;
+
+import jakarta.annotation.PreDestroy;
+import kz.it.patentparser.archive.RawResponseArchive;
+import kz.it.patentparser.enums.NavigationDirection;
+import kz.it.patentparser.enums.PatentCategory;
+import kz.it.patentparser.model.DetailPageFingerprint;
+import kz.it.patentparser.model.Patent;
+import kz.it.patentparser.repository.DocNumberRepository;
+import kz.it.patentparser.service.DetailFingerprintService;
+import kz.it.patentparser.service.DetailFingerprintService.PageVersion;
+import kz.it.patentparser.service.GosReestrDetailClient;
+import kz.it.patentparser.service.PatentBatchWriter;
+import kz.it.patentparser.service.PatentService;
+import kz.it.patentparser.service.PatentStorageService;
+import kz.it.patentparser.validator.PatentValidator;
+import org.asynchttpclient.Response;
+import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Парсер госреестра без браузера: перебирает docNumber по категориям и загружает
+ * страницы Details?docNumber=N напрямую по HTTP.
+ * Загрузка, разбор и сохранение идут конвейером: запросы ограничены max-concurrency клиента,
+ * разбор выполняется в отдельном пуле, запись в базу - пачками в PatentBatchWriter.
+ * Уже известные номера запрашиваются условным GET; страницы, не изменившиеся с прошлого разбора,
+ * не разбираются и не пишутся в базу, изменившиеся обновляют сохранённый патент.
+ */
+@Component
+public class GosReestrHttpPatentParser implements PatentParser {
+    private static final Logger logger = LoggerFactory.getLogger(GosReestrHttpPatentParser.class);
+    private static final long MAX_PROBE_STEP = 1L << 24;
+
+    private final GosReestrDetailClient detailClient;
+    private final GosReestrDetailParser detailParser;
+    private final PatentService patentService;
+    private final PatentValidator validator;
+    private final PatentStorageService patentStorageService;
+    private final DocNumberRepository docNumberRepository;
+    private final DetailFingerprintService fingerprints;
+    private final RawResponseArchive archive;
+    // Таймер повторов: отложенная задача не держит parsePool, который после прерывания уже не принимает задачи
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "gosreestr-http-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${gosreestr.http.tail-margin:2000}")
+    private long tailMargin;
+    @Value("${gosreestr.http.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${gosreestr.http.retry-delay-ms:3000}")
+    private long retryDelayMs;
+    @Value("${gosreestr.http.max-in-flight:64}")
+    private int maxInFlight;
+    @Value("${gosreestr.discovery.probe-window:8}")
+    private int probeWindow;
+    @Value("${gosreestr.writer.batch-size:100}")
+    private int batchSize;
+    @Value("${gosreestr.writer.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    public GosReestrHttpPatentParser(GosReestrDetailClient detailClient, GosReestrDetailParser detailParser, PatentService patentService,
+                                     PatentValidator validator, PatentStorageService patentStorageService, DocNumberRepository docNumberRepository,
+                                     DetailFingerprintService fingerprints, RawResponseArchive archive) {
+        this.detailClient = detailClient;
+        this.detailParser = detailParser;
+        this.patentService = patentService;
+        this.validator = validator;
+        this.patentStorageService = patentStorageService;
+        this.docNumberRepository = docNumberRepository;
+        this.fingerprints = fingerprints;
+        this.archive = archive;
+    }
+
+    /**
+     * Патенты сохраняются по мере разбора, поэтому, как и у браузерного парсера, список не накапливается.
+     * Параметр both не нужен: параллельность обеспечивается пулом запросов, а не двумя проходами навстречу.
+     */
+    @Override
+    public List<Patent> parseAll(String from, boolean both) {
+        for (PatentCategory category : PatentCategory.values()) {
+            try {
+                crawlCategory(category, from);
+            } catch (IllegalStateException e) {
+                logger.error("HTTP crawl of {} failed: {}", category.getName(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("HTTP crawl interrupted at category {}", category.getName());
+                break;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Patent> parseCategory(String category) {
+        return parseFrom(category, NavigationDirection.NEXT.getClassName(), false);
+    }
+
+    @Override
+    public List<Patent> parseFrom(String category, String from, boolean both) {
+        PatentCategory patentCategory = PatentCategory.fromName(category);
+        if (patentCategory == null) {
+            logger.error("Category not found: {}", category);
+            return Collections.emptyList();
+        }
+        try {
+            crawlCategory(patentCategory, from);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("HTTP crawl of {} interrupted", category);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Верхняя граница - наибольший известный docNumber категории плюс tail-margin на новые записи.
+     * PREVIOUS идёт от верхней границы к 1, иначе - от 1 вверх.
+     */
+    private void crawlCategory(PatentCategory category, String from) throws InterruptedException {
+        Long maxKnown = docNumberRepository.findMaxDocumentNumber(category.getName());
+        long upper = (maxKnown != null ? maxKnown : 0) + tailMargin;
+        if (NavigationDirection.PREVIOUS.getClassName().equals(from)) {
+            crawlRange(category, upper, 1);
+        } else {
+            crawlRange(category, 1, upper);
+        }
+    }
+
+    /**
+     * Поиск новых номеров категории без обхода списка. От наибольшего известного docNumber номера проверяются
+     * с удваивающимся шагом (+1, +2, +4, ...), пока проба не попадёт за конец нумерации, затем граница уточняется
+     * двоичным поиском между последней живой и первой пустой пробой. Проба живая, если хотя бы один из
+     * probe-window номеров подряд отдаёт карточку, - так одиночные пропуски и ответы 500 не обрывают поиск.
+     * Найденный диапазон загружается через crawlRange. Возвращает число сохранённых патентов;
+     * если границу определить или диапазон загрузить не удалось, бросает IllegalStateException.
+     */
+    public int discoverNew(PatentCategory category) {
+        Long maxKnown = docNumberRepository.findMaxDocumentNumber(category.getName());
+        long base = maxKnown != null ? maxKnown : 0;
+        AtomicInteger probes = new AtomicInteger();
+        try {
+            long alive = base;
+            long dead;
+            long step = 1;
+            while (true) {
+                long candidate = base + step;
+                if (!isAlive(category, candidate, probes)) {
+                    dead = candidate;
+                    break;
+                }
+                alive = candidate;
+                step *= 2;
+                if (step > MAX_PROBE_STEP) {
+                    throw new IllegalStateException("no end of numbering within " + MAX_PROBE_STEP + " of " + base);
+                }
+            }
+            while (dead - alive > 1) {
+                long middle = alive + (dead - alive) / 2;
+                if (isAlive(category, middle, probes)) {
+                    alive = middle;
+                } else {
+                    dead = middle;
+                }
+            }
+
+            // Живая проба означает карточку где-то в её окне
+            long upper = alive == base ? base : alive + probeWindow - 1;
+            logger.info("Discovery of {} from docNumber {}: upper bound {} after {} probes",
+                    category.getName(), base, upper, probes.get());
+            if (upper <= base) {
+                return 0;
+            }
+            return crawlRange(category, base + 1, upper);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Discovery of {} interrupted", category.getName());
+        } catch (IllegalStateException e) {
+            logger.error("Discovery of {} stopped after {} probes: {}", category.getName(), probes.get(), e.getMessage());
+            throw e;
+        }
+        return 0;
+    }
+
+    private boolean isAlive(PatentCategory category, long docNumber, AtomicInteger probes) throws InterruptedException {
+        for (long number = docNumber; number < docNumber + probeWindow; number++) {
+            probes.incrementAndGet();
+            if (exists(category, String.valueOf(number))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Есть ли карточка с таким номером: 200 с блоком полей - есть, 500/404 или пустая карточка - нет.
+     * Ошибка после max-attempts попыток бросает IllegalStateException: граница по ней не определяется.
+     */
+    private boolean exists(PatentCategory category, String docNumber) throws InterruptedException {
+        String url = GosReestrDetailClient.detailsUrl(category, docNumber);
+        String reason = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                Response response = detailClient.fetch(url, Optional.empty()).get();
+                int status = response.getStatusCode();
+                if (status == 200) {
+                    return detailParser.extractDetails(response.getResponseBody(StandardCharsets.UTF_8), url) != null;
+                }
+                if (status == 500 || status == 404) {
+                    return false;
+                }
+                reason = "HTTP " + status;
+            } catch (ExecutionException e) {
+                reason = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            }
+            Thread.sleep(retryDelayMs);
+        }
+        throw new IllegalStateException("probe of docNumber " + docNumber + " failed: " + reason);
+    }
+
+    /**
+     * Загружает docNumber от fromDoc до toDoc включительно (в любом направлении) и возвращает число сохранённых патентов.
+     * Если пачка патентов не записалась или ни один запрос диапазона не удался, бросает IllegalStateException,
+     * чтобы диапазон не считался пройденным. При прерывании уже разобранные патенты дописываются в базу,
+     * после чего InterruptedException пробрасывается вызывающему.
+     */
+    public int crawlRange(PatentCategory category, long fromDoc, long toDoc) throws InterruptedException {
+        Instant start = Instant.now();
+        logger.info("Crawling category {} over HTTP, docNumber {} -> {}", category.getName(), fromDoc, toDoc);
+
+        RangeStats stats = new RangeStats();
+        Semaphore window = new Semaphore(maxInFlight);
+        Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+        ExecutorService parsePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        PatentBatchWriter writer = new PatentBatchWriter(patentService, logger, batchSize, flushIntervalMs);
+        InterruptedException interrupted = null;
+        try {
+            long step = fromDoc <= toDoc ? 1 : -1;
+            for (long docNumber = fromDoc; docNumber != toDoc + step; docNumber += step) {
+                window.acquire();
+                String number = String.valueOf(docNumber);
+                CompletableFuture<Void> future = fetchAndParse(category, number, 1, parsePool, writer, stats);
+                inFlight.add(future);
+                future.whenComplete((ignored, error) -> {
+                    inFlight.remove(future);
+                    if (error != null && !(error instanceof CancellationException)) {
+                        logger.error("Unexpected error processing docNumber {} ({})", number, category.getName(), error);
+                    }
+                    window.release();
+                });
+            }
+            // Дожидаемся всех запросов в полёте
+            window.acquire(maxInFlight);
+            window.release(maxInFlight);
+        } catch (InterruptedException e) {
+            interrupted = e;
+            logger.error("HTTP crawl of {} interrupted", category.getName());
+            // Повторы и разбор ответов, пришедших после прерывания, не должны писать в закрытый writer
+            stats.stopped = true;
+            inFlight.forEach(future -> future.cancel(false));
+            parsePool.shutdownNow();
+        } finally {
+            drainAndClose(category, parsePool, writer);
+        }
+
+        logger.info("Finished {} docNumber {} -> {} in {} s: found={}, saved={}, unchanged={}, refreshed={}, invalid={}, missing={}, failed={}",
+                category.getName(), fromDoc, toDoc, Duration.between(start, Instant.now()).toSeconds(),
+                stats.found.get(), writer.getSaved(), stats.unchanged.get(), stats.refreshed.get(), stats.invalid.get(), stats.missing.get(), stats.failed.get());
+        if (interrupted != null) {
+            throw interrupted;
+        }
+        if (writer.isFailed()) {
+            throw new IllegalStateException("patents of docNumber " + fromDoc + " -> " + toDoc + " were not saved");
+        }
+        if (stats.failed.get() > 0 && stats.failed.get() == stats.total()) {
+            throw new IllegalStateException("all " + stats.failed.get() + " requests of docNumber " + fromDoc + " -> " + toDoc + " failed");
+        }
+        return writer.getSaved();
+    }
+
+    /**
+     * Writer закрывается только после того, как на parsePool не осталось задач, пишущих в него, и закрывается
+     * в любом случае: иначе поток writer'а остаётся висеть, а патенты из его очереди не попадают в базу.
+     * Флаг прерывания на время ожидания снимается и восстанавливается в конце.
+     */
+    private void drainAndClose(PatentCategory category, ExecutorService parsePool, PatentBatchWriter writer) {
+        boolean interrupted = Thread.interrupted();
+        parsePool.shutdown();
+        try {
+            while (true) {
+                try {
+                    if (!parsePool.awaitTermination(1, TimeUnit.MINUTES)) {
+                        logger.warn("Parse pool of {} did not stop in 1 minute", category.getName());
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            while (true) {
+                try {
+                    writer.close();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private CompletableFuture<Void> fetchAndParse(PatentCategory category, String docNumber, int attempt,
+                                                  ExecutorService parsePool, PatentBatchWriter writer, RangeStats stats) {
+        if (stats.stopped) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String url = GosReestrDetailClient.detailsUrl(category, docNumber);
+        Optional<DetailPageFingerprint> known = fingerprints.find(category.getName(), docNumber);
+        CompletableFuture<Response> request;
+        try {
+            request = detailClient.fetch(url, known);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return request
+                .handle((response, error) -> {
+                    if (error == null && response.getStatusCode() == 304) {
+                        stats.unchanged.incrementAndGet();
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    if (error == null && response.getStatusCode() == 200) {
+                        return CompletableFuture.runAsync(() -> handlePage(category, docNumber, url, response, known, writer, stats), parsePool);
+                    }
+                    if (error == null && (response.getStatusCode() == 500 || response.getStatusCode() == 404)) {
+                        // Пропуск в нумерации: сайт отвечает 500 на несуществующие номера
+                        stats.missing.incrementAndGet();
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    String reason = error != null ? error.getMessage() : "HTTP " + response.getStatusCode();
+                    if (attempt < maxAttempts && !stats.stopped) {
+                        logger.warn("docNumber {} ({}) failed: {}, retrying {}/{}...", docNumber, category.getName(), reason, attempt + 1, maxAttempts);
+                        return retryAfter(retryDelayMs * attempt, parsePool, stats)
+                                .thenCompose(ignored -> fetchAndParse(category, docNumber, attempt + 1, parsePool, writer, stats));
+                    }
+                    logger.error("docNumber {} ({}) failed after {} attempts: {}", docNumber, category.getName(), maxAttempts, reason);
+                    stats.failed.incrementAndGet();
+                    patentStorageService.saveDocNumber(category.getName(), docNumber, false);
+                    return CompletableFuture.<Void>completedFuture(null);
+                })
+                .thenCompose(next -> next);
+    }
+
+    /**
+     * Повтор идёт на parsePool, а не в общем ForkJoinPool: fetch может блокироваться на лимитере и предохранителе.
+     * Если к сроку обход остановлен или parsePool уже закрыт, future завершается сразу и fetchAndParse
+     * не выполняет запрос, - отложенный повтор не оставляет незавершённый future в inFlight.
+     */
+    private CompletableFuture<Void> retryAfter(long delayMs, ExecutorService parsePool, RangeStats stats) {
+        CompletableFuture<Void> delayed = new CompletableFuture<>();
+        try {
+            retryScheduler.schedule(() -> {
+                if (stats.stopped) {
+                    delayed.complete(null);
+                    return;
+                }
+                try {
+                    parsePool.execute(() -> delayed.complete(null));
+                } catch (RejectedExecutionException e) {
+                    delayed.complete(null);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Приложение останавливается
+            delayed.complete(null);
+        }
+        return delayed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+
+    private void handlePage(PatentCategory category, String docNumber, String url, Response response,
+                            Optional<DetailPageFingerprint> known, PatentBatchWriter writer, RangeStats stats) {
+        try {
+            String body = response.getResponseBody(StandardCharsets.UTF_8);
+            archive.store(RawResponseArchive.GOSREESTR, category.getName(), docNumber, body);
+            PageVersion version = fingerprints.versionOf(body, response.getHeader("ETag"), response.getHeader("Last-Modified"));
+            if (fingerprints.isUnchanged(known, version)) {
+                stats.unchanged.incrementAndGet();
+                return;
+            }
+
+            Element details = detailParser.extractDetails(body, url);
+            if (details == null) {
+                stats.missing.incrementAndGet();
+                return;
+            }
+            stats.found.incrementAndGet();
+
+            Patent patent = detailParser.parse(details, docNumber, category.getName());
+            if (patentService.refreshPatent(patent)) {
+                stats.refreshed.incrementAndGet();
+                fingerprints.record(category.getName(), docNumber, version);
+                logger.debug("Refreshed existing patent, docNumber: {}", docNumber);
+                return;
+            }
+
+            if (validator.isValid(patent)) {
+                writer.submit(patent);
+                patentStorageService.saveDocNumber(category.getName(), docNumber, true);
+                writer.afterCommit(() -> fingerprints.record(category.getName(), docNumber, version));
+            } else {
+                stats.invalid.incrementAndGet();
+                logger.warn("Invalid patent data, skipping: {}", patent);
+                patentStorageService.saveDocNumber(category.getName(), docNumber, false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            stats.failed.incrementAndGet();
+            logger.error("Error parsing docNumber {} ({})", docNumber, category.getName(), e);
+            patentStorageService.saveDocNumber(category.getName(), docNumber, false);
+        }
+    }
+
+    private static class RangeStats {
+        final AtomicInteger found = new AtomicInteger();
+        final AtomicInteger unchanged = new AtomicInteger();
+        final AtomicInteger refreshed = new AtomicInteger();
+        final AtomicInteger invalid = new AtomicInteger();
+        final AtomicInteger missing = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        // Обход прерван: новые запросы и повторы не начинаются
+        volatile boolean stopped;
+
+        int total() {
+            return found.get() + unchanged.get() + refreshed.get() + invalid.get() + missing.get() + failed.get();
+        }
+    }
+}
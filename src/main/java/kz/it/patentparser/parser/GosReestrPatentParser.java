@@ -1,183 +1,450 @@
 package kz.it.patentparser.parser;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.it.patentparser.archive.RawResponseArchive;
+import kz.it.patentparser.dto.CardListingDto;
 import kz.it.patentparser.enums.NavigationDirection;
+import kz.it.patentparser.model.CrawlCheckpoint;
+import kz.it.patentparser.model.DetailPageFingerprint;
 import kz.it.patentparser.model.Patent;
 import kz.it.patentparser.model.PatentAdditionalField;
+import kz.it.patentparser.selenium.PageReadiness;
+import kz.it.patentparser.selenium.WebDriverPool;
+import kz.it.patentparser.selenium.BrowserProfile;
+import kz.it.patentparser.selenium.BrowserSession;
+import kz.it.patentparser.selenium.WebDriverPool.PooledWebDriver;
+import kz.it.patentparser.service.CrawlCheckpointService;
+import kz.it.patentparser.service.CrawlWatermarkService;
+import kz.it.patentparser.service.DetailFingerprintService;
+import kz.it.patentparser.service.DetailFingerprintService.PageVersion;
+import kz.it.patentparser.service.GosReestrDetailClient;
 import kz.it.patentparser.service.ImageService;
+import kz.it.patentparser.service.PatentBatchWriter;
 import kz.it.patentparser.service.PatentService;
 import kz.it.patentparser.service.PatentStorageService;
-import kz.it.patentparser.util.ImageScraper;
 import kz.it.patentparser.validator.PatentValidator;
-import org.jsoup.HttpStatusException;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.asynchttpclient.Response;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.openqa.selenium.*;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static kz.it.patentparser.util.TransliterationUtil.fixMixedCharacters;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class GosReestrPatentParser implements PatentParser {
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
     private static final Logger logger = LoggerFactory.getLogger(GosReestrPatentParser.class);
+    private static final String PAGE_COUNT_SCRIPT =
+            "var cv = window.cvReestr;" +
+            "return cv && typeof cv.GetPageCount === 'function' ? cv.GetPageCount() : null;";
+    private static final String GOTO_PAGE_SCRIPT =
+            "var cv = window.cvReestr;" +
+            "if (cv.GetPageIndex() !== arguments[0]) { cv.GotoPage(arguments[0]); }";
+    private static final String PAGE_INDEX_SCRIPT =
+            "var cv = window.cvReestr; return cv ? cv.GetPageIndex() : null;";
+    private static final String HARVEST_CARDS_SCRIPT =
+            "var cards = document.querySelectorAll('div.dxcvFlowCard_Material'), result = [];" +
+            "for (var i = 0; i < cards.length; i++) {" +
+            "  var link = cards[i].querySelector('a'), href = link ? link.href : null;" +
+            "  result.push({ href: href, docNumber: href ? href.substring(href.lastIndexOf('=') + 1) : null," +
+            "                text: cards[i].innerText.trim() });" +
+            "}" +
+            "return JSON.stringify(result);";
 
     private final PatentValidator validator;
     private final PatentService patentService;
     private final ImageService imageService;
 
     private final PatentStorageService patentStorageService;
+    private final GosReestrDetailParser detailParser;
+    private final WebDriverPool webDriverPool;
+    private final PageReadiness readiness;
+    private final GosReestrDetailClient detailClient;
+    private final CrawlWatermarkService watermarkService;
+    private final CrawlCheckpointService checkpointService;
+    private final DetailFingerprintService fingerprints;
+    private final RawResponseArchive archive;
+    private final ObjectMapper objectMapper;
+    // Снятые callback'и cvReestr по браузерным сессиям; Optional.empty() - снять не удалось, листаем браузером
+    private final Map<WebDriver, Optional<GosReestrCallbackReplay>> replays = Collections.synchronizedMap(new WeakHashMap<>());
+    // Общее состояние встречных обходов режима both по категориям
+    private final Map<String, BothDirectionsMeeting> meetings = new ConcurrentHashMap<>();
+
+    @Value("${gosreestr.detail.workers:8}")
+    private int detailWorkers;
+    @Value("${gosreestr.detail.queue-capacity:400}")
+    private int detailQueueCapacity;
+    @Value("${gosreestr.replay.enabled:true}")
+    private boolean replayEnabled;
+    @Value("${gosreestr.browser-profile:LEAN}")
+    private BrowserProfile browserProfile;
+    @Value("${gosreestr.prefetch.enabled:true}")
+    private boolean prefetchEnabled;
+    @Value("${gosreestr.prefetch.max-age-ms:30000}")
+    private long prefetchMaxAgeMs;
+    @Value("${gosreestr.incremental.margin:400}")
+    private int incrementalMargin;
+    @Value("${gosreestr.writer.batch-size:100}")
+    private int batchSize;
+    @Value("${gosreestr.writer.flush-interval-ms:5000}")
+    private long flushIntervalMs;
 
     @Autowired
-    public GosReestrPatentParser(PatentService patentService, PatentValidator validator, PatentStorageService patentStorageService, ImageService imageService) {
+    public GosReestrPatentParser(PatentService patentService, PatentValidator validator, PatentStorageService patentStorageService, ImageService imageService, GosReestrDetailParser detailParser, WebDriverPool webDriverPool, PageReadiness readiness, GosReestrDetailClient detailClient, CrawlWatermarkService watermarkService, CrawlCheckpointService checkpointService, DetailFingerprintService fingerprints, RawResponseArchive archive, ObjectMapper objectMapper) {
         this.patentService = patentService;
         this.validator = validator;
         this.patentStorageService = patentStorageService;
         this.imageService = imageService;
+        this.detailParser = detailParser;
+        this.webDriverPool = webDriverPool;
+        this.readiness = readiness;
+        this.detailClient = detailClient;
+        this.watermarkService = watermarkService;
+        this.checkpointService = checkpointService;
+        this.fingerprints = fingerprints;
+        this.archive = archive;
+        this.objectMapper = objectMapper;
     }
 
     @Override
     public List<Patent> parseAll(String from, boolean both) {
-        List<Patent> patents = new ArrayList<>();
-        System.setProperty("webdriver.chrome.driver", "/usr/local/bin/chromedriver");
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--headless");
-        WebDriver webDriver = new ChromeDriver(options);
+        parseCategories(getCategoryNames(), from, both);
+        return new ArrayList<>();
+    }
 
-        try {
-            WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofSeconds(20));
+    @Override
+    public List<Patent> parseCategory(String category) {
+        return parseFrom(category, NavigationDirection.NEXT.getClassName(), false);
+    }
 
-            logger.info("Starting patent parsing process...");
-            webDriver.get("https://gosreestr.kazpatent.kz/");
-            logger.info("Opened KazPatent website.");
+    @Override
+    public List<Patent> parseFrom(String category, String from, boolean both) {
+        if (!getCategories().containsKey(category)) {
+            logger.error("Category not found: {}", category);
+            return new ArrayList<>();
+        }
+        parseCategories(List.of(category), from, both);
+        return new ArrayList<>();
+    }
 
-            Map<String, String> categories = getCategories();
+    private void parseCategories(List<String> categories, String from, boolean both) {
+        logger.info("Starting patent parsing process...");
 
-            for (Map.Entry<String, String> category : categories.entrySet()) {
-                try {
-                    String categoryName = category.getKey();
-                    String categoryId = category.getValue();
+        try (PatentBatchWriter writer = newBatchWriter()) {
+            PageCheckpointTracker checkpoints = new PageCheckpointTracker(checkpointService, writer);
 
-                    logger.info("Processing category: {}", categoryName);
+            try (DetailFetchStage detailStage = newDetailStage(writer, checkpoints);
+                 BrowserSession session = webDriverPool.openSession(browserProfile)) {
+                for (String category : categories) {
+                    try {
+                        logger.info("Processing category: {}", category);
 
-                    boolean isCategorySelected = selectCategory(webDriver, wait, categoryName, categoryId);
-                    if (!isCategorySelected) {
-                        logger.error("Failed to select category: {}", categoryName);
-                        continue;
-                    }
-                    if (!switchToTextView(webDriver, wait)) {
-                        logger.error("Skipping category due to view switch failure: {}", categoryName);
-                        continue;
+                        if (!session.navigate(driver -> openCategory(driver, category))) {
+                            logger.error("Skipping category, could not open it: {}", category);
+                            continue;
+                        }
+//                        if (!setFilterByDate(webDriver, wait)) {
+//                            logger.error("Skipping category due to filter setup failure: {}", category);
+//                            continue;
+//                        }
+                        int queued = parsePatentsWithPagination(session, category, from, both, detailStage, checkpoints);
+                        logger.info("Queued {} cards for category: {}", queued, category);
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        logger.error("Error parsing category: {}", category, e);
+                        if (!session.recover(e)) {
+                            logger.error("Stopping card listing: browser session could not be restored");
+                            break;
+                        }
                     }
-                    Thread.sleep(3000);
-                    setPageSizeTo200(webDriver, wait);
-                    Thread.sleep(3000);
-                    wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("LoadingPanel_LD")));
-                    wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("cvReestr_LD")));
-//                    if (!setFilterByDate(webDriver, wait)) {
-//                        logger.error("Skipping category due to filter setup failure: {}", categoryName);
-//                        continue;
-//                    }
-                    patents.addAll(parsePatentsWithPagination(webDriver, wait, category.getKey(), from, both));
-                    logger.info("Parsed {} patents for category: {}", patents.size(), categoryName);
-                } catch (Exception e) {
-                    logger.error("Error parsing category: {}", category.getKey(), e);
                 }
+
+                logger.info("Card listing completed ({} browser restarts), waiting for detail pages...", session.getRestarts());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Patent parsing interrupted");
+        }
 
-            logger.info("Patent parsing process completed.");
+        logger.info("Patent parsing process completed.");
+    }
 
+    public PatentBatchWriter newBatchWriter() {
+        return new PatentBatchWriter(patentService, logger, batchSize, flushIntervalMs);
+    }
 
-            return patents;
-        } finally {
-            webDriver.quit(); // Ensures WebDriver is closed
+    public DetailFetchStage newDetailStage(PatentBatchWriter writer) {
+        return new DetailFetchStage(detailWorkers, detailQueueCapacity,
+                listing -> processListing(listing, writer), logger);
+    }
+
+    private DetailFetchStage newDetailStage(PatentBatchWriter writer, PageCheckpointTracker checkpoints) {
+        return new DetailFetchStage(detailWorkers, detailQueueCapacity, listing -> {
+            try {
+                processListing(listing, writer);
+            } finally {
+                checkpoints.cardDone(listing);
+            }
+        }, logger);
+    }
+
+    public BrowserProfile getBrowserProfile() {
+        return browserProfile;
+    }
+
+    public List<String> getCategoryNames() {
+        return new ArrayList<>(getCategories().keySet());
+    }
+
+    /**
+     * Открывает сайт и категорию в текстовом виде по 200 карточек на страницу.
+     */
+    public boolean openCategory(WebDriver webDriver, String category) {
+        String categoryId = getCategories().get(category);
+        if (categoryId == null) {
+            logger.error("Category not found: {}", category);
+            return false;
         }
+        WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofSeconds(20));
+        replays.remove(webDriver);
+        webDriver.get("https://gosreestr.kazpatent.kz/");
+
+        if (!selectCategory(webDriver, wait, category, categoryId)) {
+            logger.error("Failed to select category: {}", category);
+            return false;
+        }
+        if (!switchToTextView(webDriver, wait)) {
+            logger.error("Failed to switch to text view for category: {}", category);
+            return false;
+        }
+        setPageSizeTo200(webDriver, wait);
+        return true;
     }
 
-    @Override
-    public List<Patent> parseCategory(String category) {
-        return parseFrom(category, NavigationDirection.NEXT.getClassName(), false);
+    /**
+     * Число страниц открытой категории: из клиентского API cvReestr, иначе по кнопкам пейджера.
+     */
+    public int getPageCount(WebDriver webDriver) {
+        Object count = ((JavascriptExecutor) webDriver).executeScript(PAGE_COUNT_SCRIPT);
+        if (count instanceof Number && ((Number) count).intValue() > 0) {
+            return ((Number) count).intValue();
+        }
+        return getLastPage(webDriver, new WebDriverWait(webDriver, Duration.ofSeconds(20)));
     }
 
-    @Override
-    public List<Patent> parseFrom(String category, String from, boolean both) {
-        List<Patent> patents = new ArrayList<>();
-        System.setProperty("webdriver.chrome.driver", "/usr/local/bin/chromedriver");
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--headless");
-
-        WebDriver webDriver = new ChromeDriver(options);
-        try {
-            WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofSeconds(20));
+    /**
+     * Переходит на страницу (нумерация с 1) через cvReestr.GotoPage и ставит её карточки в очередь детальных страниц.
+     * Категория уже должна быть открыта через openCategory.
+     */
+    public int crawlPage(WebDriver webDriver, String category, int page, DetailFetchStage detailStage) throws InterruptedException {
+        List<CardListingDto> listings = harvestPage(webDriver, category, page);
+        long waitedMs = readiness.getMetrics().takePageWaitMillis();
+        for (CardListingDto listing : listings) {
+            detailStage.submit(listing);
+        }
 
-            logger.info("Starting patent parsing process...");
-            webDriver.get("https://gosreestr.kazpatent.kz/");
-            logger.info("Opened KazPatent website.");
+        logger.info("Queued {} cards on {} page: {} (waited {} ms for page readiness, detail backlog {})",
+                listings.size(), category, page, waitedMs, detailStage.getBacklog());
+        return listings.size();
+    }
 
-            String categoryId = getCategories().get(category);
-            if (categoryId == null) {
-                logger.error("Category not found: {}, {}", category, categoryId);
-                return patents;
+    /**
+     * Инкрементальный обход категории: список сортируется по дате (новые первыми), в очередь детальных страниц
+     * идут только карточки с docNumber выше водяной отметки. Даты и docNumber растут не строго вместе,
+     * поэтому обход останавливается не на первой старой карточке, а после incremental-margin таких карточек.
+     * Отметка сдвигается только после успешного завершения обхода и записи всех патентов.
+     * Если категорию не удалось открыть или отсортировать, или пачка патентов не записалась,
+     * бросается IllegalStateException - единица общей очереди уходит на повтор.
+     */
+    public void parseIncremental(String category) {
+        long watermark = watermarkService.getWatermark(category);
+        long highestSeen = watermark;
+        boolean completed = false;
+        logger.info("Starting incremental parsing of {} above docNumber {}", category, watermark);
+
+        PatentBatchWriter writer = newBatchWriter();
+        try (writer;
+             DetailFetchStage detailStage = newDetailStage(writer);
+             PooledWebDriver lease = webDriverPool.borrow(browserProfile)) {
+            WebDriver webDriver = lease.driver();
+            if (!openCategory(webDriver, category)) {
+                throw new IllegalStateException("incremental parsing of " + category + ": category did not open");
+            }
+            if (!setFilterByDate(webDriver, new WebDriverWait(webDriver, Duration.ofSeconds(20)))) {
+                throw new IllegalStateException("incremental parsing of " + category + ": newest-first sort is not available");
             }
 
-            try {
-                logger.info("Processing category: {}", category);
+            int pageCount = getPageCount(webDriver);
+            int queued = 0;
+            int seenOld = 0;
+            for (int page = 1; page <= pageCount && seenOld < incrementalMargin; page++) {
+                for (CardListingDto listing : harvestPage(webDriver, category, page)) {
+                    long docNumber = parseDocNumber(listing.getDocNumber());
+                    if (docNumber > watermark || docNumber < 0) {
+                        detailStage.submit(listing);
+                        queued++;
+                        highestSeen = Math.max(highestSeen, docNumber);
+                    } else {
+                        seenOld++;
+                    }
+                }
+                logger.info("Incremental {} page {}: {} new cards queued, {} at or below watermark",
+                        category, page, queued, seenOld);
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Incremental parsing of {} interrupted", category);
+        }
 
-                logger.info("Processing category: {}", category);
+        if (completed && writer.isFailed()) {
+            throw new IllegalStateException("incremental parsing of " + category + ": patents were not saved, watermark kept at " + watermark);
+        }
+        if (completed) {
+            watermarkService.advance(category, highestSeen);
+        }
+        logger.info("Incremental parsing of {} completed.", category);
+    }
 
-                boolean isCategorySelected = selectCategory(webDriver, wait, category, categoryId);
-                if (!isCategorySelected) {
-                    logger.error("Failed to select category: {}", category);
-                    return patents;
-                }
-                if (!switchToTextView(webDriver, wait)) {
-                    logger.error("Skipping category due to view switch failure: {}", category);
-                    return patents;
-                }
-                Thread.sleep(3000);
-                setPageSizeTo200(webDriver, wait);
-                Thread.sleep(3000);
-//                if (!setFilterByDate(webDriver, wait)) {
-//                    logger.error("Skipping category due to filter setup failure: {}", category);
-//                    return patents;
-//                }
-                patents.addAll(parsePatentsWithPagination(webDriver, wait, category, from, both));
+    private long parseDocNumber(String docNumber) {
+        try {
+            return Long.parseLong(docNumber);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Карточки страницы (нумерация с 1). Если для сессии снят callback cvReestr, страница загружается
+     * одним HTTP-запросом; иначе - переходом в браузере через cvReestr.GotoPage.
+     */
+    private List<CardListingDto> harvestPage(WebDriver webDriver, String category, int page) throws InterruptedException {
+        GosReestrCallbackReplay replay = replayFor(webDriver, category);
+        if (replay != null) {
+            try {
+                return replay.fetchPage(detailClient, page - 1);
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Exception e) {
-                logger.error("Error parsing category: {}", category, e);
+                logger.warn("Callback replay failed on {} page {}, paging through the browser: {}", category, page, e.getMessage());
+                replays.put(webDriver, Optional.empty());
             }
+        }
 
-            logger.info("Patent parsing process completed.");
-            return patents;
-        } finally {
-            webDriver.quit();
+        JavascriptExecutor js = (JavascriptExecutor) webDriver;
+        WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofSeconds(20));
+
+        js.executeScript(GOTO_PAGE_SCRIPT, page - 1);
+        readiness.awaitCardsReady(webDriver);
+        scroll(webDriver, js, false);
+
+        return parsePatents(webDriver, wait, category, js);
+    }
+
+    /**
+     * Запускает загрузку страницы page, не дожидаясь её: HTTP-запросом, если для сессии снят callback,
+     * иначе переходом cvReestr.GotoPage. null - опережающая загрузка выключена или страницы нет.
+     */
+    private ListingPrefetch startPrefetch(WebDriver webDriver, String category, int page, int pageCount,
+                                          List<CardListingDto> previous) throws InterruptedException {
+        if (!prefetchEnabled || page < 1 || page > pageCount) {
+            return null;
+        }
+        Optional<GosReestrCallbackReplay> replay = replays.get(webDriver);
+        try {
+            if (replay != null && replay.isPresent()) {
+                return ListingPrefetch.overHttp(page, replay.get().fetchPageAsync(detailClient, page - 1), previous);
+            }
+            ((JavascriptExecutor) webDriver).executeScript(GOTO_PAGE_SCRIPT, page - 1);
+            return ListingPrefetch.inBrowser(page, previous);
+        } catch (RuntimeException e) {
+            logger.debug("Could not prefetch {} page {}: {}", category, page, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Карточки заранее загруженной страницы; null - загрузку нужно отбросить и запросить страницу заново.
+     * В браузере страница уже запрошена по порядку, после предыдущей, поэтому проверяется только номер страницы.
+     */
+    private List<CardListingDto> takePrefetched(WebDriver webDriver, String category, int page, ListingPrefetch prefetch) throws InterruptedException {
+        if (prefetch.getPage() != page) {
+            prefetch.cancel();
+            return null;
+        }
+        if (prefetch.getFetch() == null) {
+            JavascriptExecutor js = (JavascriptExecutor) webDriver;
+            readiness.awaitCardsReady(webDriver);
+            Object index = js.executeScript(PAGE_INDEX_SCRIPT);
+            if (!(index instanceof Number number) || number.intValue() != page - 1) {
+                logger.debug("Browser is not on prefetched {} page {}", category, page);
+                return null;
+            }
+            scroll(webDriver, js, false);
+            return parsePatents(webDriver, new WebDriverWait(webDriver, Duration.ofSeconds(20)), category, js);
+        }
+
+        if (prefetch.ageNanos() > TimeUnit.MILLISECONDS.toNanos(prefetchMaxAgeMs)) {
+            prefetch.cancel();
+            logger.info("Discarding prefetched {} page {}: older than {} ms", category, page, prefetchMaxAgeMs);
+            return null;
+        }
+        List<CardListingDto> listings;
+        try {
+            listings = prefetch.getFetch().get();
+        } catch (ExecutionException | CancellationException e) {
+            logger.warn("Prefetch of {} page {} failed: {}", category, page, e.getMessage());
+            return null;
+        }
+        if (prefetch.overlapsPrevious(listings)) {
+            logger.info("Discarding prefetched {} page {}: the list shifted since the previous page", category, page);
+            return null;
+        }
+        return listings;
+    }
+
+    /**
+     * Callback снимается один раз после openCategory (и сортировки, если она нужна) - при первом обращении к странице.
+     */
+    private GosReestrCallbackReplay replayFor(WebDriver webDriver, String category) {
+        if (!replayEnabled) {
+            return null;
+        }
+        Optional<GosReestrCallbackReplay> replay = replays.get(webDriver);
+        if (replay == null) {
+            try {
+                replay = Optional.ofNullable(GosReestrCallbackReplay.capture(webDriver, category, readiness));
+            } catch (WebDriverException e) {
+                logger.warn("Error capturing cvReestr callback: {}", e.getMessage());
+                replay = Optional.empty();
+            }
+            replays.put(webDriver, replay);
+            if (replay.isPresent()) {
+                logger.info("Captured cvReestr callback for {}, pages will be fetched over HTTP", category);
+            } else {
+                logger.warn("Could not capture cvReestr callback for {}, paging through the browser", category);
+            }
         }
+        return replay.filter(r -> r.getCategory().equals(category)).orElse(null);
     }
 
     private Map<String, String> getCategories() {
@@ -216,23 +483,6 @@ public class GosReestrPatentParser implements PatentParser {
         }
     }
 
-    private boolean stepToLastPage(WebDriver webDriver, WebDriverWait wait) {
-        try {
-            List<WebElement> paginationButtons = wait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(
-                    By.cssSelector("a.dxp-num.dxRoundRippleTarget.dxRippleTarget")));
-            WebElement lastPageButton = paginationButtons.get(paginationButtons.size() - 1);
-            logger.info("Navigating to last page: {}", lastPageButton.getText());
-            lastPageButton.click();
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("CVReestr_LD")));
-            Thread.sleep(2000);
-            logger.info("Navigated to last page.");
-            return true;
-        } catch (TimeoutException | NoSuchElementException | InterruptedException e) {
-            logger.error("Error while navigating to last page: {}", e.getMessage(), e);
-            return false;
-        }
-    }
-
     private int getLastPage(WebDriver webDriver, WebDriverWait wait) {
         try {
             List<WebElement> paginationButtons = wait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(
@@ -247,121 +497,177 @@ public class GosReestrPatentParser implements PatentParser {
         return 1000;
     }
 
+    /**
+     * Сортировка списка по дате регистрации (или подачи заявки) по убыванию: первый клик по заголовку
+     * сортирует по возрастанию, второй - по убыванию. Заголовок ищется заново после каждого callback.
+     */
     private boolean setFilterByDate(WebDriver webDriver, WebDriverWait wait) {
         try {
-            // Ищем элементы при каждой попытке
-            List<WebElement> headerElements = webDriver.findElements(By.cssSelector("div.dxcvHeader_Material"));
-
-            for (WebElement header : headerElements) {
-                String text = header.getText().trim();
-
-                if (text.contains("Дата регистрации") || text.contains("Дата подачи заявки")) {
-                    try {
-                        // Ожидаем, пока элемент не станет кликабельным
-                        WebElement clickableHeader = wait.until(ExpectedConditions.elementToBeClickable(header));
-
-                        // Кликаем на элемент
-                        clickableHeader.click();
-
-                        // Ожидаем изменения состояния, затем находим элемент снова
-                        wait.until(ExpectedConditions.stalenessOf(clickableHeader));
-
-                        // Снова находим элемент и кликаем второй раз
-                        clickableHeader = wait.until(ExpectedConditions.elementToBeClickable(header));
-                        clickableHeader.click();
-
-                        logger.info("Clicked on filter header: {}", text);
-                        return true;
-                    } catch (StaleElementReferenceException e) {
-                        logger.error("Элемент протух, пробую снова: {}", e.getMessage());
-                        // Возможно, добавить дополнительные попытки, если необходимо
-                    } catch (Exception e) {
-                        logger.error("Ошибка при клике на фильтр для '{}': {}", text, e.getMessage(), e);
-                        return false;
-                    }
+            for (int click = 0; click < 2; click++) {
+                WebElement header = findDateHeader(webDriver);
+                if (header == null) {
+                    logger.warn("Не найден фильтр по дате.");
+                    return false;
                 }
+                String text = header.getText().trim();
+                wait.until(ExpectedConditions.elementToBeClickable(header)).click();
+                readiness.awaitCardsReady(webDriver);
+                logger.info("Clicked on filter header: {}", text);
             }
-
-            logger.warn("Не найден фильтр по дате.");
+            return true;
+        } catch (StaleElementReferenceException e) {
+            logger.error("Элемент протух при сортировке по дате: {}", e.getMessage());
             return false;
-
         } catch (TimeoutException | NoSuchElementException e) {
             logger.error("Error while setting date filter: {}", e.getMessage(), e);
             return false;
         }
     }
 
-
-    private List<Patent> parsePatentsWithPagination(WebDriver webDriver, WebDriverWait wait, String category, String paginationId, boolean both) throws InterruptedException {
-        List<Patent> patents = new ArrayList<>();
-        int currentPage = 1;
-        int stoppingPage = 0;
-        if(NavigationDirection.PREVIOUS.getClassName().equals(paginationId)) {
-            stepToLastPage(webDriver, wait);
-            currentPage = getLastPage(webDriver, wait);
-            stoppingPage = currentPage/2;
-        } if(NavigationDirection.NEXT.getClassName().equals(paginationId)) {
-            stoppingPage = getLastPage(webDriver, wait)/2;
+    private WebElement findDateHeader(WebDriver webDriver) {
+        for (WebElement header : webDriver.findElements(By.cssSelector("div.dxcvHeader_Material"))) {
+            String text = header.getText().trim();
+            if (text.contains("Дата регистрации") || text.contains("Дата подачи заявки")) {
+                return header;
+            }
         }
+        return null;
+    }
 
-        JavascriptExecutor js = (JavascriptExecutor) webDriver;
-
-        while (true) {
-            try {
-
-                scroll(webDriver, js, false);
-                List<Patent> pagePatents = parsePatents(webDriver, wait, category, js);
-
-                savePatentData(pagePatents);
-
-                logger.info("Parsed {} patents on page: {}", pagePatents.size(), currentPage);
 
-                // Wait until all buttons are visible
-                List<WebElement> pageButtons = wait.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(
-                        By.cssSelector("a.dxp-button.dxp-bi.dxRoundRippleTarget.dxRippleTarget")));
-                wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("cvReestr_LD")));
+    /**
+     * Обход страниц категории по номерам: NEXT - с первой страницы, PREVIOUS - с последней.
+     * В режиме both два встречных обхода идут навстречу через общий BothDirectionsMeeting и останавливаются
+     * на первой странице, которую уже занял другой обход, - граница определяется фактическим продвижением,
+     * а не серединой getPageCount().
+     * Драйвер берётся из сессии на каждой странице: после падения Chrome сессия перезапускает его, заново открывает
+     * категорию, и обход запрашивает ту же страницу по номеру. Если восстановить сессию не удалось, обход
+     * останавливается без завершения чекпоинта - следующий запуск продолжит с последней закрытой страницы.
+     */
+    private int parsePatentsWithPagination(BrowserSession session, String category, String paginationId, boolean both,
+                                           DetailFetchStage detailStage, PageCheckpointTracker checkpoints) throws InterruptedException {
+        NavigationDirection direction = NavigationDirection.PREVIOUS.getClassName().equals(paginationId)
+                ? NavigationDirection.PREVIOUS : NavigationDirection.NEXT;
+        if (!both) {
+            return paginate(session, category, direction, null, detailStage, checkpoints);
+        }
+        BothDirectionsMeeting meeting = meetings.compute(category,
+                (key, existing) -> existing == null || existing.hasFinished(direction) ? new BothDirectionsMeeting() : existing);
+        try {
+            return paginate(session, category, direction, meeting, detailStage, checkpoints);
+        } finally {
+            if (meeting.finish(direction)) {
+                meetings.remove(category, meeting);
+            }
+        }
+    }
 
-                Optional<WebElement> nextButton = pageButtons.stream()
-                        .filter(button -> {
-                            List<WebElement> images = button.findElements(By.tagName("img"));
-                            return images.stream().anyMatch(img -> img.getAttribute("class").contains(paginationId));
-                        })
-                        .findFirst();
+    private int paginate(BrowserSession session, String category, NavigationDirection direction, BothDirectionsMeeting meeting,
+                         DetailFetchStage detailStage, PageCheckpointTracker checkpoints) throws InterruptedException {
+        int step = direction == NavigationDirection.PREVIOUS ? -1 : 1;
+        int pageCount = getPageCount(session.driver());
+        int firstPage = direction == NavigationDirection.PREVIOUS ? pageCount : 1;
+        int lastPage = direction == NavigationDirection.PREVIOUS ? 1 : pageCount;
+        int currentPage = firstPage;
+
+        // Продолжаем с последней сохранённой страницы прерванного обхода
+        Optional<CrawlCheckpoint> checkpoint = checkpointService.find(category, direction);
+        if (checkpoint.isPresent()) {
+            int resumePage = checkpoint.get().getLastCompletedPage() + step;
+            if (resumePage >= 1 && resumePage <= pageCount) {
+                currentPage = resumePage;
+                logger.info("Resuming {} {} from page {} (last committed docNumber {})",
+                        category, direction, resumePage, checkpoint.get().getLastDocNumber());
+            }
+        }
 
-                if (nextButton.isPresent()) {
-                    nextButton.get().click();
-                    wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("LoadingPanel_LD")));
-                    wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("cvReestr_LD")));
-                    logger.info("Processed pages: {}", NavigationDirection.PREVIOUS.getClassName().equals(paginationId) ? currentPage-- : currentPage++);
-                    if(both && NavigationDirection.PREVIOUS.getClassName().equals(paginationId) && currentPage <= stoppingPage) {
-                        logger.info("Stopping pagination at page: {}", currentPage);
-                        break;
-                    }if(both && NavigationDirection.NEXT.getClassName().equals(paginationId) && currentPage >= stoppingPage) {
-                        logger.info("Stopping pagination at page: {}", currentPage);
-                        break;
-                    }
-                } else {
-                    logger.info("No pagination button found. Stopping pagination.");
+        int queued = 0;
+        int failures = 0;
+        int claimedPage = -1;
+        int prefetchedPages = 0;
+        ListingPrefetch prefetch = null;
+        while (step > 0 ? currentPage <= lastPage : currentPage >= lastPage) {
+            if (meeting != null && currentPage != claimedPage) {
+                if (!meeting.claimPage(currentPage)) {
+                    logger.info("{} {} met the opposite crawl at page {} ({} pages claimed by both)",
+                            category, direction, currentPage, meeting.claimedPages());
                     break;
                 }
-            } catch (NoSuchElementException | TimeoutException e) {
-                logger.info("Pagination stopped. No more pages or timeout: " + e.getMessage());
-                break;
-            } catch (StaleElementReferenceException e) {
-                logger.error("Stale element reference while navigating pages: {}", e);
+                claimedPage = currentPage;
+            }
+            long pageStart = System.currentTimeMillis();
+            try {
+                List<CardListingDto> listings = prefetch != null ? takePrefetched(session.driver(), category, currentPage, prefetch) : null;
+                prefetch = null;
+                if (listings != null) {
+                    prefetchedPages++;
+                } else {
+                    listings = harvestPage(session.driver(), category, currentPage);
+                }
+                long waitedMs = readiness.getMetrics().takePageWaitMillis();
+                // Следующая страница грузится, пока карточки этой ставятся в очередь (постановка может ждать места)
+                prefetch = startPrefetch(session.driver(), category, currentPage + step, pageCount, listings);
+                if (meeting != null) {
+                    // Карточки, уже поставленные встречным обходом (сдвиг страниц новыми записями), пропускаются
+                    listings = listings.stream().filter(listing -> meeting.claimDocNumber(listing.getDocNumber())).toList();
+                }
+
+                // Детальные страницы грузятся воркерами, браузер сразу идёт на следующую страницу
+                checkpoints.beginPage(category, direction, currentPage, listings);
+                for (CardListingDto listing : listings) {
+                    detailStage.submit(listing);
+                }
+                queued += listings.size();
+
+                logger.info("Queued {} cards on page: {} of {} (waited {} ms for page readiness, detail backlog {})",
+                        listings.size(), currentPage, pageCount, waitedMs, detailStage.getBacklog());
+                currentPage += step;
+                failures = 0;
+                int restarts = session.getRestarts();
+                boolean recycled = session.pageDone(System.currentTimeMillis() - pageStart);
+                if (prefetch != null && session.getRestarts() != restarts) {
+                    prefetch.cancel();
+                    prefetch = null;
+                }
+                if (!recycled) {
+                    logger.error("Stopping {} {} at page {}: browser session could not be recycled",
+                            category, direction, currentPage);
+                    return queued;
+                }
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Exception e) {
-                logger.error("Error parsing patents on page: {}", currentPage, e);
+                if (prefetch != null) {
+                    prefetch.cancel();
+                    prefetch = null;
+                }
+                if (!session.recover(e)) {
+                    logger.error("Stopping {} {} at page {}: browser session could not be restored",
+                            category, direction, currentPage, e);
+                    return queued;
+                }
+                if (++failures >= 3) {
+                    logger.error("Giving up on page {} after {} attempts", currentPage, failures, e);
+                    currentPage += step;
+                    failures = 0;
+                } else {
+                    logger.error("Error parsing patents on page: {}, retrying", currentPage, e);
+                }
             }
+        }
 
+        if (prefetch != null) {
+            prefetch.cancel();
         }
-        return patents;
+        logger.info("Stopping pagination at page: {} ({} pages taken from prefetch)", currentPage - step, prefetchedPages);
+        checkpoints.finish(category, direction);
+        return queued;
     }
 
-    private List<Patent> parsePatents(WebDriver webDriver, WebDriverWait wait, String category, JavascriptExecutor js) throws InterruptedException {
-        List<Patent> patents = new ArrayList<>();
+    private List<CardListingDto> parsePatents(WebDriver webDriver, WebDriverWait wait, String category, JavascriptExecutor js) throws InterruptedException {
         logger.debug("Parsing patents for category: {}", category);
 
-        List<WebElement> patentCards = new ArrayList<>();
+        boolean cardsVisible = false;
         int count = 3;
         while (count > 0) {
             try {
@@ -370,8 +676,8 @@ public class GosReestrPatentParser implements PatentParser {
 
                 scroll(webDriver, js, true);
 
-                patentCards = wait.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(
-                        By.cssSelector("div.dxcvFlowCard_Material")));
+                wait.until(ExpectedConditions.visibilityOfElementLocated(By.cssSelector("div.dxcvFlowCard_Material")));
+                cardsVisible = true;
                 break;
             } catch (TimeoutException e) {
                 logger.error("Timeout while waiting for patent cards to load: {}", e.getMessage());
@@ -389,9 +695,68 @@ public class GosReestrPatentParser implements PatentParser {
             }
         }
 
-        if (patentCards.isEmpty()) {
+        if (!cardsVisible) {
             logger.warn("No patents found for category: {}", category);
-            return patents;
+            return new ArrayList<>();
+        }
+
+        List<CardListingDto> harvested = harvestCards(js, category);
+        if (harvested != null) {
+            return harvested;
+        }
+        logger.warn("Card harvest script returned unexpected data, reading cards one by one: {}", category);
+        return parsePatentsOneByOne(webDriver, wait, category, js);
+    }
+
+    /**
+     * Все карточки страницы одним executeScript: ссылка, docNumber и видимый текст каждой карточки в JSON.
+     * null - если ответ не похож на ожидаемый массив карточек; тогда карточки читаются по одной через WebElement.
+     */
+    private List<CardListingDto> harvestCards(JavascriptExecutor js, String category) {
+        HarvestedCard[] cards;
+        try {
+            Object json = js.executeScript(HARVEST_CARDS_SCRIPT);
+            if (!(json instanceof String text)) {
+                return null;
+            }
+            cards = objectMapper.readValue(text, HarvestedCard[].class);
+        } catch (JsonProcessingException | WebDriverException e) {
+            if (BrowserSession.isSessionLost(e)) {
+                throw (WebDriverException) e;
+            }
+            logger.warn("Card harvest script failed: {}", e.getMessage());
+            return null;
+        }
+        if (cards == null || cards.length == 0) {
+            return null;
+        }
+
+        List<CardListingDto> listings = new ArrayList<>(cards.length);
+        for (HarvestedCard card : cards) {
+            if (card == null || card.text() == null) {
+                return null;
+            }
+            if (card.href() == null || card.href().isEmpty()) {
+                logger.warn("No detailed link found for a patent. " + card.text());
+                continue;
+            }
+            if (card.docNumber() == null || card.docNumber().isEmpty() || !card.href().endsWith("=" + card.docNumber())) {
+                return null;
+            }
+            listings.add(new CardListingDto(category, card.href(), card.docNumber(), card.text()));
+        }
+        return listings;
+    }
+
+    private List<CardListingDto> parsePatentsOneByOne(WebDriver webDriver, WebDriverWait wait, String category, JavascriptExecutor js) throws InterruptedException {
+        List<CardListingDto> listings = new ArrayList<>();
+        List<WebElement> patentCards;
+        try {
+            patentCards = wait.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(
+                    By.cssSelector("div.dxcvFlowCard_Material")));
+        } catch (TimeoutException e) {
+            logger.error("Timeout while waiting for patent cards to load: {}", e.getMessage());
+            return listings;
         }
 
         for (int i = 0; i < patentCards.size(); i++) {
@@ -413,31 +778,8 @@ public class GosReestrPatentParser implements PatentParser {
                         break;
                     }
 
-                    Patent patent = extractPatentData(card.getText(), category);
-                    logger.debug("Extracting patent data from card: {}", card.getText());
-
-                    logger.debug("Fetching detailed patent page: {}", detailUrl);
-                    Patent detailedPatent = fetchPatentDetails(detailUrl, category);
-
-                    mergePatentData(patent, detailedPatent);
-
-                    if (patentService.isPatentExists(patent)) {
-                        logger.info("Patent already exists, skipping: {}",
-                                patent.getSecurityDocNumber() != null ? patent.getSecurityDocNumber() : patent.getRegistrationNumber());
-                        break;
-                    }
                     String docNumber = (detailUrl.substring(detailUrl.lastIndexOf("=") + 1));
-
-                    if (validator.isValid(patent)) {
-                        patents.add(patent);
-                        logger.info("Added patent: {}",
-                                patent.getSecurityDocNumber() != null ? patent.getSecurityDocNumber() : patent.getRegistrationNumber());
-                        patentStorageService.saveDocNumber(category, docNumber, true);
-                    } else {
-                        logger.warn("Invalid patent data, skipping: {}", patent);
-                        patentStorageService.saveDocNumber(category, docNumber, false);
-                        logger.info("Saving docNumber: {}", docNumber);
-                    }
+                    listings.add(new CardListingDto(category, detailUrl, docNumber, card.getText()));
 
                     success = true;// If execution reaches here, parsing was successful
                 } catch (StaleElementReferenceException e) {
@@ -452,35 +794,84 @@ public class GosReestrPatentParser implements PatentParser {
                         break; // Stop retrying if elements can't be retrieved
                     }
                     retryCount++;
-                    Thread.sleep(1000); // Wait before retrying
+                    readiness.awaitCardsReady(webDriver); // Wait before retrying
                 } catch (NoSuchElementException e) {
                     logger.error("Error extracting patent data for category: {}", category, e);
                     break;
                 } catch (Exception e) {
+                    if (BrowserSession.isSessionLost(e)) {
+                        throw e;
+                    }
                     logger.error("Error parsing patent for category: {}", category, e);
                     break;
                 }
             }
         }
-        return patents;
+        return listings;
     }
 
-    private void savePatentData(List<Patent> patents) {
-        logger.info("Saving patents to database...");
-        patentService.savePatents(patents, logger);
-        logger.info("Saved {} patents to database.", patents.size());
+    /**
+     * Обработка одной карточки в воркере DetailFetchStage: детальная страница, слияние с текстом карточки,
+     * проверка и постановка в пакетную запись. Карточка с тем же текстом, что и в прошлый раз, пропускается
+     * без запроса детальной страницы; изменившаяся карточка уже сохранённого патента обновляет его поля
+     * на месте (refreshFromCard). Страница, не изменившаяся с прошлого разбора, пропускается без разбора DOM
+     * и без записи в базу; изменившаяся обновляет уже сохранённый патент.
+     * Хеш карточки запоминается только вместе с записью, которая прошла: после транзакции refreshFromCard
+     * или refreshPatent, а для новых патентов - в afterCommit пакетной записи, который не выполняется,
+     * если пачка не сохранилась. Иначе неудачная запись пропускалась бы при следующем обходе как неизменная.
+     */
+    private void processListing(CardListingDto listing, PatentBatchWriter writer) {
+        String category = listing.getCategory();
+        String docNumber = listing.getDocNumber();
+        try {
+            Optional<DetailPageFingerprint> known = fingerprints.find(category, docNumber);
+            String cardHash = fingerprints.cardHash(listing.getCardText());
+            if (fingerprints.isCardUnchanged(known, cardHash)) {
+                logger.debug("Card unchanged since last run, skipping docNumber: {}", docNumber);
+                return;
+            }
+            // Страница этого номера уже разбиралась, изменилась только карточка - детальная страница не нужна
+            if (known.map(DetailPageFingerprint::getCardHash).isPresent()
+                    && patentService.refreshFromCard(docNumber, extractPatentData(listing.getCardText(), category))) {
+                fingerprints.recordCard(category, docNumber, cardHash);
+                logger.info("Refreshed patent from changed card, docNumber: {}", docNumber);
+                return;
+            }
+
+            logger.debug("Fetching detailed patent page: {}", listing.getDetailUrl());
+            DetailPage page = fetchPatentDetails(listing.getDetailUrl(), category, known);
+            if (page == null) {
+                return;
+            }
+            if (page.unchanged()) {
+                fingerprints.recordCard(category, docNumber, cardHash);
+                logger.debug("Detail page unchanged since last run, skipping docNumber: {}", docNumber);
+                return;
+            }
 
-        List<PatentAdditionalField> additionalFields = patents.stream()
-                .filter(patent -> patent.getAdditionalFields() != null) // Avoid null values
-                .flatMap(patent -> patent.getAdditionalFields().stream())
-                .toList();
+            Patent patent = extractPatentData(listing.getCardText(), category);
+            mergePatentData(patent, page.patent());
 
+            if (patentService.refreshPatent(patent)) {
+                fingerprints.record(category, docNumber, page.version(), cardHash);
+                logger.info("Refreshed existing patent: {}",
+                        patent.getSecurityDocNumber() != null ? patent.getSecurityDocNumber() : patent.getRegistrationNumber());
+                return;
+            }
 
-        if (!additionalFields.isEmpty()) {
-            patentService.saveAllAdditionalFields(additionalFields);
-            logger.info("Saved {} additional fields to database.", additionalFields.size());
-        } else {
-            logger.info("No additional fields found to save.");
+            if (validator.isValid(patent)) {
+                writer.submit(patent);
+                logger.info("Added patent: {}",
+                        patent.getSecurityDocNumber() != null ? patent.getSecurityDocNumber() : patent.getRegistrationNumber());
+                patentStorageService.saveDocNumber(category, docNumber, true);
+                writer.afterCommit(() -> fingerprints.record(category, docNumber, page.version(), cardHash));
+            } else {
+                logger.warn("Invalid patent data, skipping: {}", patent);
+                patentStorageService.saveDocNumber(category, docNumber, false);
+                logger.info("Saving docNumber: {}", docNumber);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -494,7 +885,7 @@ public class GosReestrPatentParser implements PatentParser {
                     int lastHeight = ((Number) js.executeScript("return document.body.scrollHeight")).intValue();
                     while (true) {
                         js.executeScript("window.scrollTo(0, document.body.scrollHeight);");
-                        Thread.sleep(2000); // Wait for content to load
+                        readiness.awaitDomQuiet(driver); // Wait for content to load
 
                         int newHeight = ((Number) js.executeScript("return document.body.scrollHeight")).intValue();
                         if (newHeight == lastHeight) {
@@ -506,21 +897,24 @@ public class GosReestrPatentParser implements PatentParser {
                     // Scroll to the top of the page
                     js.executeScript("window.scrollTo(0, 0);");
                 }
-                Thread.sleep(3000);
+                readiness.awaitDomQuiet(driver);
                 break;
             } catch (UnhandledAlertException e) {
                 logger.error("Unhandled alert, retrying...");
                 handleAlert(driver);
-                Thread.sleep(3000);
+                readiness.awaitSettled(driver);
             } catch (Exception e) {
+                if (BrowserSession.isSessionLost(e)) {
+                    throw e;
+                }
                 attempts--;
                 logger.error("Error scrolling page, retrying..." + e);
-                Thread.sleep(3000);
+                readiness.awaitSettled(driver);
             }
         }
     }
 
-    private void mergePatentData(Patent patent, Patent detailedPatent) {
+    static void mergePatentData(Patent patent, Patent detailedPatent) {
         if (detailedPatent.getTitle() != null) {
             patent.setTitle(detailedPatent.getTitle());
         }
@@ -557,6 +951,12 @@ public class GosReestrPatentParser implements PatentParser {
         if (detailedPatent.getIpc() != null) {
             patent.setIpc(detailedPatent.getIpc());
         }
+        if (detailedPatent.getMkpo() != null) {
+            patent.setMkpo(detailedPatent.getMkpo());
+        }
+        if (detailedPatent.getName() != null) {
+            patent.setName(detailedPatent.getName());
+        }
         if (detailedPatent.getSortName() != null) {
             patent.setSortName(detailedPatent.getSortName());
         }
@@ -589,15 +989,14 @@ public class GosReestrPatentParser implements PatentParser {
                 attempts--;
                 logger.error("Stale element reference finding detailed link, retrying...");
                 scroll(driver, js, false);
-                Thread.sleep(3000);
                 scroll(driver, js, true);
-                Thread.sleep(3000);
+                readiness.awaitCardsReady(driver);
             } catch (NoSuchElementException e) {
                 logger.error("No detailed link found in card: {}", card.getText());
                 return null;
             } catch (NoSuchSessionException e) {
-                logger.error("Session expired, retrying...");
-                return null;
+                logger.error("Session expired, restarting browser...");
+                throw e;
             } catch (UnhandledAlertException e) {
                 logger.error("Unhandled alert, retrying...");
                 handleAlert(driver);
@@ -610,77 +1009,59 @@ public class GosReestrPatentParser implements PatentParser {
         return null;
     }
 
-    private Patent fetchPatentDetails(String url, String category) throws InterruptedException {
+    /**
+     * Загружает детальную страницу условным GET по сохранённой версии. Ответ 304 или совпавший хеш
+     * блока полей дают DetailPage.unchanged() - страница не разбирается. Ответ 500, пока предохранитель эндпоинта
+     * не закрыт, означает, что лежит сайт, а не карточка: номер не помечается неудачным, следующая попытка
+     * дождётся восстановления на предохранителе.
+     */
+    private DetailPage fetchPatentDetails(String url, String category, Optional<DetailPageFingerprint> known) throws InterruptedException {
         int attempts = 3;
         String docNumber = url.substring(url.lastIndexOf("=") + 1);
         while (attempts > 0) {
             try {
-                Document doc = Jsoup.connect(url)
-                        .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64)")
-                        .timeout(30_000)
-                        .get();
-
-                Patent patent = new Patent();
-                patent.setDocNumber(docNumber);
-                patent.setCategory(category);
-                patent.setPatentSite("gosreestr.kazpatent.kz");
-
-                List<PatentAdditionalField> additionalFields = new ArrayList<>();
-
-                Elements fields = doc.select("div.detial_plan_info ul li"); // Select all list items
-
-                for (Element field : fields) {
-                    String rawLabel = field.select("strong").text().trim();
-                    String value = field.select("span").text().trim();
-
-
-                    // Remove context starting with ( and ending )
-                    String label = rawLabel.replaceAll("\\(.*\\)", "").trim();
-
-                    if(label.isEmpty() || value.isEmpty()) {
-                        continue;
-                    }
-                    if (label.equals("Реферат/Описание") || label.equals("Описания"))
-                        //i need to get absolute url
-                        value = field.select("span a").attr("abs:href");
-
-                    if (isCoreField(label)) {
-                        setCoreField(patent, label, value);
-                    } else {
-                        additionalFields.add(new PatentAdditionalField(patent, label, value));
-                    }
+                Response response = detailClient.fetchListed(url, known).get();
+                int status = response.getStatusCode();
+                if (status == 304) {
+                    return DetailPage.UNCHANGED;
                 }
-
-                Element imgElement = doc.selectFirst("div.plan_img5 img, div.plan_img img");
-                if (imgElement != null) {
-                    String imgUrl = imgElement.absUrl("src");
-                    if(imgUrl != null) {
-                        patent.setImageUrl(imgUrl);
-                    }
+                if (status == 500 && !detailClient.isAvailable(url)) {
+                    logger.warn("HTTP 500 for docNumber {} while {} is unavailable, retrying...", docNumber, category);
+                    attempts--;
+                    continue;
                 }
-
-                patent.setAdditionalFields(additionalFields);
-                return patent;
-
-            } catch (SocketTimeoutException e) {
-                logger.warn("Timeout, retrying...");
-                attempts--;
-                Thread.sleep(3000);
-            } catch (HttpStatusException e) {
-                if (e.getStatusCode() == 500) {
+                if (status == 500) {
                     patentStorageService.saveDocNumber(category, docNumber, false);
                     logger.info("Saving docNumber: {}", docNumber);
                     logger.error("Error fetching patent details because of 500 status");
                     return null;
-                } else {
-                    logger.error("HTTP error: " + e.getStatusCode());
                 }
-            } catch (IOException e) {
+                if (status != 200) {
+                    logger.error("HTTP error: " + status);
+                    attempts--;
+                    Thread.sleep(3000);
+                    continue;
+                }
 
-                patentStorageService.saveDocNumber(category, docNumber, false);
-                logger.error("Error fetching patent details: {}", e.getMessage());
-                logger.info("Saving docNumber: {}", docNumber);
-                return null;
+                String body = response.getResponseBody(StandardCharsets.UTF_8);
+                archive.store(RawResponseArchive.GOSREESTR, category, docNumber, body);
+                PageVersion version = fingerprints.versionOf(body, response.getHeader("ETag"), response.getHeader("Last-Modified"));
+                if (fingerprints.isUnchanged(known, version)) {
+                    return DetailPage.UNCHANGED;
+                }
+                return new DetailPage(detailParser.parse(body, url, docNumber, category), version);
+
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof java.util.concurrent.TimeoutException) {
+                    logger.warn("Timeout, retrying...");
+                    attempts--;
+                    Thread.sleep(3000);
+                } else {
+                    patentStorageService.saveDocNumber(category, docNumber, false);
+                    logger.error("Error fetching patent details: {}", e.getCause().getMessage());
+                    logger.info("Saving docNumber: {}", docNumber);
+                    return null;
+                }
             }
         }
         return null;
@@ -692,8 +1073,7 @@ public class GosReestrPatentParser implements PatentParser {
             ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", textViewButton);
             ((JavascriptExecutor) driver).executeScript("arguments[0].click();", textViewButton);
 
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("LoadingPanel_LD")));
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("cvReestr_LD")));
+            readiness.awaitSettled(driver);
 
             logger.info("Switched to 'Текст' view successfully.");
             return true;
@@ -708,12 +1088,9 @@ public class GosReestrPatentParser implements PatentParser {
 
     private void setPageSizeTo200(WebDriver webDriver, WebDriverWait wait) {
         try {
-            Thread.sleep(3000);
+            readiness.awaitSettled(webDriver);
             WebElement pageSizeDropdown = wait.until(ExpectedConditions.elementToBeClickable(By.id("cvReestr_DXPagerTop_PSB")));
             pageSizeDropdown.click();
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("LoadingPanel_LD")));
-
-            Thread.sleep(2000);
 
             WebElement lastOption = wait.until(ExpectedConditions.visibilityOfElementLocated(
                     By.id("cvReestr_DXPagerTop_PSP_DXI4_")
@@ -721,9 +1098,7 @@ public class GosReestrPatentParser implements PatentParser {
             lastOption.click();
 
             // Wait for the page to reload after changing page size
-            Thread.sleep(2000);
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("LoadingPanel_LD")));
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id("cvReestr_LD")));
+            readiness.awaitCardsReady(webDriver);
 
         } catch (StaleElementReferenceException e) {
 
@@ -733,118 +1108,18 @@ public class GosReestrPatentParser implements PatentParser {
     }
 
 
-    private void setCoreField(Patent patent, String label, String value) {
-        switch (label) {
-            case "№ охранного документа":
-                patent.setSecurityDocNumber(value);
-                break;
-            case "№ регистрации":
-                patent.setRegistrationNumber(value);
-                break;
-            case "Статус":
-                patent.setStatus(value);
-                break;
-            case "Номер заявки":
-                patent.setApplicationNumber(value);
-                break;
-            case "Дата подачи заявки":
-                patent.setFilingDate(LocalDate.parse(value, DATE_FORMATTER));
-                break;
-            case "Дата регистрации":
-                patent.setRegistrationDate(LocalDate.parse(value.substring(0, 10), DATE_FORMATTER));
-                break;
-            case "Срок действия":
-                patent.setExpirationDate(LocalDate.parse(value, DATE_FORMATTER));
-                break;
-            case "Название":
-                patent.setTitle(value);
-                break;
-            case "МПК":
-                patent.setIpc(value);
-                break;
-            case "МКПО":
-                patent.setMkpo(value);
-                break;
-            case "МКТУ":
-                patent.setMkpo(value);
-                break;
-            case "Номер бюллетеня":
-                patent.setBulletinNumber(value);
-                break;
-            case "Дата бюллетеня":
-                patent.setBulletinDate(LocalDate.parse(value, DATE_FORMATTER));
-                break;
-            case "Наименование сорта, породы":
-                patent.setSortName(value);
-                break;
-            case "Патентообладатель":
-                patent.setPatentHolder(value);
-                break;
-            case "Автор(-ы)":
-                patent.setAuthors(value);
-                break;
-            case "Владелец":
-                patent.setOwner(value);
-                break;
-        }
-    }
-
-
     private Patent extractPatentData(String cardText, String category) {
         Patent patent = new Patent();
         patent.setPatentSite("gosreestr.kazpatent.kz");
         patent.setCategory(category);
-        // Extracting common fields
-//        patent.setSecurityDocNumber(getFieldValue(cardText, "№ охранного документа:?"));
-//        patent.setRegistrationNumber(getFieldValue(cardText, "№ регистрации:?"));
-//        patent.setStatus(getFieldValue(cardText, "Статус:?"));
-//        patent.setApplicationNumber(getFieldValue(cardText, "Номер заявки:?"));
-//        patent.setFilingDate(getDateField(cardText, "Дата подачи заявки:?"));
-//        patent.setRegistrationDate(getDateField(cardText, "Дата регистрации:?"));
-//        patent.setExpirationDate(getDateField(cardText, "Срок действия:?"));
-        String title = fixMixedCharacters(getFieldValue(cardText, "Название:?"));
-        patent.setTitle(title);
-//        patent.setIpc(getFieldValue(cardText, "МПК:?"));
-//        patent.setMkpo(getFieldValue(cardText, "МКПО:?|МКТУ:?"));
-        patent.setBulletinNumber(getFieldValue(cardText, "Номер бюллетеня:?"));
-        patent.setBulletinDate(getDateField(cardText, "Дата бюллетеня:?"));
-        patent.setAuthors(getFieldValue(cardText, "Автор\\(-ы\\)?:?"));
-        patent.setSortName(getFieldValue(cardText, "Наименование сорта, породы:?"));
+        GosReestrExtractionSchema.forCategory(category).applyCardText(patent, cardText);
         //if sort name is not empty and title is empty, set title to sort name
         if (patent.getSortName() != null && patent.getTitle() == null) {
             patent.setTitle(patent.getSortName());
         }
-//        patent.setPatentHolder(getFieldValue(cardText, "Патентообладатель:?"));
-//        patent.setOwner(getFieldValue(cardText, "Владелец:?"));
-
         return patent;
     }
 
-    private boolean isCoreField(String label) {
-        return List.of("Название", "Номер заявки", "Дата подачи заявки", "Дата регистрации", "Срок действия", "Автор(-ы)", "Патентообладатель",
-                "№ охранного документа", "№ регистрации", "Статус", "МПК", "МКПО", "МКТУ", "Номер бюллетеня", "Дата бюллетеня", "Владелец", "Наименование сорта, породы").contains(label);
-    }
-
-    private String getFieldValue(String text, String regex) {
-        Pattern pattern = Pattern.compile(regex + "\s*:?\s*(.*)");
-        Matcher matcher = pattern.matcher(text);
-        return matcher.find() ? (matcher.group(1) != null ? matcher.group(1).trim() : "") : null;
-    }
-
-    private LocalDate getDateField(String card, String regex) {
-        Pattern pattern = Pattern.compile(regex + "\\s*:?\\s*(\\d{2}\\.\\d{2}\\.\\d{4})");
-        Matcher matcher = pattern.matcher(card);
-        if (matcher.find()) {
-            String dateStr = matcher.group(1).trim();
-            try {
-                return LocalDate.parse(dateStr, DATE_FORMATTER);
-            } catch (DateTimeParseException e) {
-                System.err.println("Error parsing date: " + dateStr);
-            }
-        }
-        return null;
-    }
-
     private void handleAlert(WebDriver driver) {
         try {
             WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(2));
@@ -854,4 +1129,21 @@ public class GosReestrPatentParser implements PatentParser {
             alert.accept(); // Закрываем alert
         } catch (NoAlertPresentException e) {}
     }
+
+    /**
+     * Результат загрузки детальной страницы: разобранный патент с версией страницы или отметка "не изменилась".
+     */
+    private record DetailPage(Patent patent, PageVersion version) {
+        static final DetailPage UNCHANGED = new DetailPage(null, null);
+
+        boolean unchanged() {
+            return this == UNCHANGED;
+        }
+    }
+
+    /**
+     * Элемент JSON-массива HARVEST_CARDS_SCRIPT.
+     */
+    private record HarvestedCard(String href, String docNumber, String text) {
+    }
 }
@@ -0,0 +1,61 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.dto.CardListingDto;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Опережающая загрузка следующей страницы списка, запущенная сразу после разбора текущей:
+ * пока обход ставит карточки страницы N в очередь детальных страниц (и ждёт места в ней), страница N+1 уже грузится.
+ * С callback cvReestr это отдельный HTTP-запрос с тем же состоянием CardView, без него - cvReestr.GotoPage в браузере.
+ * Загруженная заранее страница отбрасывается, если она старше max-age-ms или пересекается по docNumber
+ * с предыдущей (список сдвинулся новыми записями), - тогда страница запрашивается заново.
+ */
+class ListingPrefetch {
+    private final int page;
+    private final CompletableFuture<List<CardListingDto>> fetch;
+    private final Set<String> previousDocNumbers;
+    private final long startedNanos = System.nanoTime();
+
+    private ListingPrefetch(int page, CompletableFuture<List<CardListingDto>> fetch, List<CardListingDto> previous) {
+        this.page = page;
+        this.fetch = fetch;
+        this.previousDocNumbers = previous.stream().map(CardListingDto::getDocNumber).collect(Collectors.toSet());
+    }
+
+    static ListingPrefetch overHttp(int page, CompletableFuture<List<CardListingDto>> fetch, List<CardListingDto> previous) {
+        return new ListingPrefetch(page, fetch, previous);
+    }
+
+    static ListingPrefetch inBrowser(int page, List<CardListingDto> previous) {
+        return new ListingPrefetch(page, null, previous);
+    }
+
+    int getPage() {
+        return page;
+    }
+
+    /**
+     * null - страница переходит в браузере, карточки читаются из DOM.
+     */
+    CompletableFuture<List<CardListingDto>> getFetch() {
+        return fetch;
+    }
+
+    long ageNanos() {
+        return System.nanoTime() - startedNanos;
+    }
+
+    boolean overlapsPrevious(List<CardListingDto> listings) {
+        return listings.stream().anyMatch(listing -> previousDocNumbers.contains(listing.getDocNumber()));
+    }
+
+    void cancel() {
+        if (fetch != null) {
+            fetch.cancel(false);
+        }
+    }
+}
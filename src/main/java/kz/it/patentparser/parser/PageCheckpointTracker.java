@@ -0,0 +1,90 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.dto.CardListingDto;
+import kz.it.patentparser.enums.NavigationDirection;
+import kz.it.patentparser.service.CrawlCheckpointService;
+import kz.it.patentparser.service.PatentBatchWriter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сдвигает чекпоинт обхода только по страницам, все карточки которых обработаны воркерами
+ * и чьи патенты записаны PatentBatchWriter. Страницы закрываются строго в порядке обхода,
+ * поэтому после падения повторно обрабатывается не больше страниц, чем было в работе.
+ */
+class PageCheckpointTracker {
+    private final CrawlCheckpointService checkpointService;
+    private final PatentBatchWriter writer;
+    private final Map<CardListingDto, PageState> pageOf = new IdentityHashMap<>();
+    private final Map<String, Deque<PageState>> openPages = new HashMap<>();
+    private final Map<String, Boolean> finished = new HashMap<>();
+
+    PageCheckpointTracker(CrawlCheckpointService checkpointService, PatentBatchWriter writer) {
+        this.checkpointService = checkpointService;
+        this.writer = writer;
+    }
+
+    synchronized void beginPage(String category, NavigationDirection direction, int page, List<CardListingDto> listings) {
+        String lastDocNumber = listings.isEmpty() ? null : listings.get(listings.size() - 1).getDocNumber();
+        PageState state = new PageState(category, direction, page, listings.size(), lastDocNumber);
+        openPages.computeIfAbsent(key(category, direction), k -> new ArrayDeque<>()).addLast(state);
+        for (CardListingDto listing : listings) {
+            pageOf.put(listing, state);
+        }
+        closeCompletedPages(category, direction);
+    }
+
+    synchronized void cardDone(CardListingDto listing) {
+        PageState state = pageOf.remove(listing);
+        if (state == null) {
+            return;
+        }
+        state.remaining--;
+        closeCompletedPages(state.category, state.direction);
+    }
+
+    /**
+     * Обход дошёл до конца: после закрытия оставшихся страниц чекпоинт удаляется.
+     */
+    synchronized void finish(String category, NavigationDirection direction) {
+        finished.put(key(category, direction), true);
+        closeCompletedPages(category, direction);
+    }
+
+    private void closeCompletedPages(String category, NavigationDirection direction) {
+        String key = key(category, direction);
+        Deque<PageState> pages = openPages.getOrDefault(key, new ArrayDeque<>());
+        while (!pages.isEmpty() && pages.peekFirst().remaining == 0) {
+            PageState state = pages.pollFirst();
+            writer.afterCommit(() -> checkpointService.save(category, direction, state.page, state.lastDocNumber));
+        }
+        if (pages.isEmpty() && finished.remove(key) != null) {
+            writer.afterCommit(() -> checkpointService.clear(category, direction));
+        }
+    }
+
+    private String key(String category, NavigationDirection direction) {
+        return category + "|" + direction;
+    }
+
+    private static class PageState {
+        final String category;
+        final NavigationDirection direction;
+        final int page;
+        final String lastDocNumber;
+        int remaining;
+
+        PageState(String category, NavigationDirection direction, int page, int remaining, String lastDocNumber) {
+            this.category = category;
+            this.direction = direction;
+            this.page = page;
+            this.remaining = remaining;
+            this.lastDocNumber = lastDocNumber;
+        }
+    }
+}
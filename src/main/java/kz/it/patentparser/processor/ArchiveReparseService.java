@@ -0,0 +1,205 @@
+package kz.it.patentparser.processor;
+
+import kz.it.patentparser.archive.ArchiveEntry;
+import kz.it.patentparser.archive.RawResponseArchive;
+import kz.it.patentparser.dto.PatentDto;
+import kz.it.patentparser.enums.PatentCategory;
+import kz.it.patentparser.model.Patent;
+import kz.it.patentparser.parser.EbulletinPatentParser;
+import kz.it.patentparser.parser.GosReestrDetailParser;
+import kz.it.patentparser.service.GosReestrDetailClient;
+import kz.it.patentparser.service.PatentApiClient;
+import kz.it.patentparser.service.PatentService;
+import kz.it.patentparser.service.PatentService.UpsertResult;
+import kz.it.patentparser.validator.PatentValidator;
+import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Повторный разбор сохранённых в RawResponseArchive ответов без обращения к сайтам.
+ * Последние версии ключей источника делятся на пакеты по batch-size; пакеты разбираются параллельно
+ * на всех ядрах тем же кодом, что и при обходе (GosReestrDetailParser, EbulletinPatentParser.convertToEntity),
+ * и записываются пакетным upsert. Время по фазам (чтение архива, разбор, запись) попадает в результат,
+ * так что прогон заодно служит воспроизводимой нагрузкой для профилирования парсеров.
+ */
+@Service
+public class ArchiveReparseService {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveReparseService.class);
+
+    private final RawResponseArchive archive;
+    private final GosReestrDetailParser detailParser;
+    private final EbulletinPatentParser ebulletinPatentParser;
+    private final PatentApiClient patentApiClient;
+    private final PatentService patentService;
+    private final PatentValidator validator;
+
+    @Value("${reparse.batch-size:500}")
+    private int batchSize;
+    @Value("${reparse.threads:0}")
+    private int threads;
+
+    public ArchiveReparseService(RawResponseArchive archive, GosReestrDetailParser detailParser, EbulletinPatentParser ebulletinPatentParser,
+                                 PatentApiClient patentApiClient, PatentService patentService, PatentValidator validator) {
+        this.archive = archive;
+        this.detailParser = detailParser;
+        this.ebulletinPatentParser = ebulletinPatentParser;
+        this.patentApiClient = patentApiClient;
+        this.patentService = patentService;
+        this.validator = validator;
+    }
+
+    /**
+     * Разбирает заново архив источника (gosreestr или ebulletin); category == null - все категории.
+     */
+    public Map<String, Object> reparse(String source, String category) {
+        if (!RawResponseArchive.GOSREESTR.equals(source) && !RawResponseArchive.EBULLETIN.equals(source)) {
+            throw new IllegalArgumentException("Unknown archive source: " + source);
+        }
+        long start = System.currentTimeMillis();
+        List<ArchiveEntry> selected = archive.latestEntries(source).stream()
+                .filter(entry -> category == null || category.equals(categoryOf(entry)))
+                .toList();
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        logger.info("Re-parsing {} archived {} responses{} on {} threads", selected.size(), source,
+                category != null ? " of " + category : "", poolSize);
+
+        ReparseStats stats = new ReparseStats();
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < selected.size(); from += batchSize) {
+                List<ArchiveEntry> batch = selected.subList(from, Math.min(from + batchSize, selected.size()));
+                futures.add(pool.submit(() -> reparseBatch(source, batch, stats)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    logger.error("Re-parse batch failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Re-parse of {} interrupted", source);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Map<String, Object> result = stats.snapshot();
+        result.put("responses", selected.size());
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        logger.info("Re-parse of {} finished: {}", source, result);
+        return result;
+    }
+
+    private void reparseBatch(String source, List<ArchiveEntry> batch, ReparseStats stats) {
+        List<Patent> patents = new ArrayList<>();
+        for (ArchiveEntry entry : batch) {
+            try {
+                long readStart = System.nanoTime();
+                String body = archive.read(entry);
+                long parseStart = System.nanoTime();
+                stats.readNanos.add(parseStart - readStart);
+
+                if (RawResponseArchive.GOSREESTR.equals(source)) {
+                    Patent patent = parseDetailPage(entry, body);
+                    if (patent == null) {
+                        stats.skipped.incrementAndGet();
+                    } else {
+                        patents.add(patent);
+                    }
+                } else {
+                    patents.addAll(parseBulletinPage(entry, body));
+                }
+                stats.parseNanos.add(System.nanoTime() - parseStart);
+            } catch (Exception e) {
+                stats.failed.incrementAndGet();
+                logger.error("Error re-parsing archived {} {} {}", entry.source(), entry.category(), entry.key(), e);
+            }
+        }
+        if (patents.isEmpty()) {
+            return;
+        }
+
+        long writeStart = System.nanoTime();
+        UpsertResult result = patentService.upsertPatents(patents);
+        stats.writeNanos.add(System.nanoTime() - writeStart);
+        stats.inserted.addAndGet(result.inserted());
+        stats.updated.addAndGet(result.updated());
+    }
+
+    private Patent parseDetailPage(ArchiveEntry entry, String body) {
+        // Базовый адрес нужен для абсолютных ссылок на описание и изображение
+        PatentCategory patentCategory = PatentCategory.fromName(entry.category());
+        String url = patentCategory != null ? GosReestrDetailClient.detailsUrl(patentCategory, entry.key()) : GosReestrDetailClient.BASE_URL;
+        Element details = detailParser.extractDetails(body, url);
+        if (details == null) {
+            return null;
+        }
+        Patent patent = detailParser.parse(details, entry.key(), entry.category());
+        return validator.isValid(patent) ? patent : null;
+    }
+
+    private List<Patent> parseBulletinPage(ArchiveEntry entry, String body) {
+        String category = categoryOf(entry);
+        if (category == null) {
+            // Список дат бюллетеней - патентов в нём нет
+            return List.of();
+        }
+        List<Patent> patents = new ArrayList<>();
+        for (PatentDto dto : patentApiClient.decodePatents(body)) {
+            patents.add(ebulletinPatentParser.convertToEntity(dto, category));
+        }
+        return patents;
+    }
+
+    /**
+     * Для госреестра категория хранится в архиве как есть, для ebulletin - имя эндпоинта, которое переводится обратно.
+     */
+    private String categoryOf(ArchiveEntry entry) {
+        if (RawResponseArchive.GOSREESTR.equals(entry.source())) {
+            return entry.category();
+        }
+        return ebulletinPatentParser.getCategories().entrySet().stream()
+                .filter(category -> category.getValue().equals(entry.category()))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static class ReparseStats {
+        final AtomicInteger inserted = new AtomicInteger();
+        final AtomicInteger updated = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final LongAdder readNanos = new LongAdder();
+        final LongAdder parseNanos = new LongAdder();
+        final LongAdder writeNanos = new LongAdder();
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("inserted", inserted.get());
+            values.put("updated", updated.get());
+            values.put("skipped", skipped.get());
+            values.put("failed", failed.get());
+            values.put("readMs", readNanos.sum() / 1_000_000);
+            values.put("parseMs", parseNanos.sum() / 1_000_000);
+            values.put("writeMs", writeNanos.sum() / 1_000_000);
+            return values;
+        }
+    }
+}
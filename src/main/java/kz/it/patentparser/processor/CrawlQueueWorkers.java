@@ -0,0 +1,139 @@
+package kz.it.patentparser.processor;
+
+import jakarta.annotation.PreDestroy;
+import kz.it.patentparser.enums.CrawlUnitKind;
+import kz.it.patentparser.model.CrawlWorkUnit;
+import kz.it.patentparser.service.CrawlWorkQueueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Воркеры узла для общей очереди обхода (crawl.queue.enabled). Раз в poll-ms свободные воркеры забирают единицы,
+ * раз в heartbeat-ms аренды выполняемых единиц продлеваются. Если аренду продлить не удалось (узел долго не отвечал
+ * и единицу забрал другой), воркер прерывается, чтобы два узла не обходили одно и то же.
+ */
+@Component
+public class CrawlQueueWorkers {
+    private static final Logger logger = LoggerFactory.getLogger(CrawlQueueWorkers.class);
+
+    private final CrawlWorkQueueService queue;
+    private final PatentProcessor processor;
+    private final Map<Long, Future<?>> running = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @Value("${crawl.queue.enabled:false}")
+    private boolean enabled;
+    @Value("${crawl.queue.workers:2}")
+    private int workers;
+
+    public CrawlQueueWorkers(CrawlWorkQueueService queue, PatentProcessor processor) {
+        this.queue = queue;
+        this.processor = processor;
+    }
+
+    @Scheduled(fixedDelayString = "${crawl.queue.poll-ms:10000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (executor == null) {
+                executor = Executors.newFixedThreadPool(workers);
+                logger.info("Crawl queue workers started on node {} ({} workers)", queue.getNodeId(), workers);
+            }
+        }
+        while (running.size() < workers) {
+            Optional<CrawlWorkUnit> claimed;
+            try {
+                claimed = queue.claim();
+            } catch (Exception e) {
+                logger.error("Error claiming crawl unit: {}", e.getMessage());
+                return;
+            }
+            if (claimed.isEmpty()) {
+                return;
+            }
+            CrawlWorkUnit unit = claimed.get();
+            // Единица регистрируется под той же блокировкой, что и снимается по завершении
+            synchronized (running) {
+                running.put(unit.getId(), executor.submit(() -> execute(unit)));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${crawl.queue.heartbeat-ms:30000}")
+    public void heartbeat() {
+        synchronized (running) {
+            running.forEach((unitId, future) -> {
+                try {
+                    if (!queue.renew(unitId)) {
+                        logger.error("Lost lease on crawl unit {}, interrupting its worker", unitId);
+                        future.cancel(true);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error renewing lease on crawl unit {}: {}", unitId, e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void execute(CrawlWorkUnit unit) {
+        long start = System.currentTimeMillis();
+        logger.info("Node {} took crawl unit {}: {} {} {}..{} (attempt {})", queue.getNodeId(), unit.getId(),
+                unit.getKind(), unit.getCategory(), unit.getRangeFrom(), unit.getRangeTo(), unit.getAttempts());
+        try {
+            run(unit);
+            if (Thread.currentThread().isInterrupted()) {
+                queue.release(unit.getId());
+                logger.warn("Crawl unit {} interrupted, released", unit.getId());
+            } else {
+                queue.complete(unit.getId());
+                logger.info("Crawl unit {} done in {} ms", unit.getId(), System.currentTimeMillis() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.release(unit.getId());
+            logger.warn("Crawl unit {} interrupted, released", unit.getId());
+        } catch (Exception e) {
+            logger.error("Crawl unit {} failed", unit.getId(), e);
+            queue.fail(unit.getId(), e);
+        } finally {
+            synchronized (running) {
+                running.remove(unit.getId());
+            }
+        }
+    }
+
+    /**
+     * Точки входа единиц бросают исключение, если работа не сделана (категория не открылась, страницы остались,
+     * пачка не записалась, все запросы диапазона упали), - такая единица уходит в fail, а не в DONE.
+     */
+    private void run(CrawlWorkUnit unit) throws InterruptedException {
+        String category = unit.getCategory();
+        switch (CrawlUnitKind.valueOf(unit.getKind())) {
+            case GOSREESTR_PAGES -> processor.runShardedPages(category, (int) unit.getRangeFrom(), (int) unit.getRangeTo());
+            case GOSREESTR_DOC_RANGE -> processor.runHttpRange(category, unit.getRangeFrom(), unit.getRangeTo());
+            case GOSREESTR_INCREMENTAL -> processor.runIncremental(category);
+            case GOSREESTR_DISCOVERY -> processor.runDiscovery(category);
+            case EBULLETIN_YEAR -> processor.runEbulletinYear((int) unit.getRangeFrom());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            // Прерванные воркеры отдают свои единицы в очередь без учёта попытки
+            executor.shutdownNow();
+        }
+    }
+}
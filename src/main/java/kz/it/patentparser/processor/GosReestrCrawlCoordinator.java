@@ -0,0 +1,316 @@
+package kz.it.patentparser.processor;
+
+import kz.it.patentparser.parser.DetailFetchStage;
+import kz.it.patentparser.parser.GosReestrPatentParser;
+import kz.it.patentparser.selenium.WebDriverPool;
+import kz.it.patentparser.selenium.BrowserSession;
+import kz.it.patentparser.selenium.WebDriverPool.PooledWebDriver;
+import kz.it.patentparser.service.PatentBatchWriter;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельный обход госреестра K браузерами вместо двух потоков "с начала и с конца".
+ * Страницы каждой категории режутся на шарды по shard-pages страниц, шарды всех категорий лежат в общей очереди.
+ * Воркер предпочитает шарды уже открытой у него категории; когда очередь пуста, он отрезает вторую половину
+ * остатка у самого большого активного шарда. Страницы выдаются шардом по одной под его блокировкой,
+ * поэтому после разделения ни одна страница не обрабатывается дважды.
+ */
+@Service
+public class GosReestrCrawlCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(GosReestrCrawlCoordinator.class);
+
+    private final GosReestrPatentParser parser;
+    private final WebDriverPool webDriverPool;
+
+    @Value("${gosreestr.crawl.workers:4}")
+    private int workers;
+    @Value("${gosreestr.crawl.shard-pages:25}")
+    private int shardPages;
+    @Value("${gosreestr.crawl.min-split-pages:2}")
+    private int minSplitPages;
+
+    public GosReestrCrawlCoordinator(GosReestrPatentParser parser, WebDriverPool webDriverPool) {
+        this.parser = parser;
+        this.webDriverPool = webDriverPool;
+    }
+
+    public void crawlAll() {
+        crawl(parser.getCategoryNames());
+    }
+
+    public void crawl(List<String> categories) {
+        long start = System.currentTimeMillis();
+        logger.info("Starting sharded crawl of {} with {} workers", categories, workers);
+
+        PatentBatchWriter writer = parser.newBatchWriter();
+        try (writer;
+             DetailFetchStage detailStage = parser.newDetailStage(writer)) {
+            CrawlPlan plan = new CrawlPlan();
+            countPages(categories).forEach((category, pages) -> {
+                for (int first = 1; first <= pages; first += shardPages) {
+                    plan.add(new PageShard(category, first, Math.min(first + shardPages, pages + 1)));
+                }
+            });
+            logger.info("Crawl plan: {} shards", plan.size());
+
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            AtomicInteger crawledPages = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                int workerId = i;
+                futures.add(executor.submit(() -> {
+                    runWorker(workerId, plan, detailStage, crawledPages);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        logger.error("Crawl worker failed", e.getCause());
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            if (plan.size() > 0) {
+                logger.warn("{} shards left unprocessed: all workers lost their browsers", plan.size());
+            }
+            logger.info("Listed {} pages in {} ms, waiting for detail pages...",
+                    crawledPages.get(), System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Sharded crawl interrupted");
+        }
+        if (writer.isFailed()) {
+            logger.error("Sharded crawl of {}: patents were not saved", categories);
+        }
+        logger.info("Sharded crawl completed in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Страницы fromPage..toPage (включительно) одной категории одним браузером - единица общей очереди обхода.
+     * Страницы, оставшиеся необработанными из-за потери браузера, или пачка патентов, не записанная в базу,
+     * делают единицу неудачной.
+     */
+    public void crawlPages(String category, int fromPage, int toPage) throws InterruptedException {
+        logger.info("Crawling {} pages {}..{}", category, fromPage, toPage);
+        PatentBatchWriter writer = parser.newBatchWriter();
+        try (writer;
+             DetailFetchStage detailStage = parser.newDetailStage(writer)) {
+            CrawlPlan plan = new CrawlPlan();
+            plan.add(new PageShard(category, fromPage, toPage + 1));
+            AtomicInteger crawledPages = new AtomicInteger();
+            runWorker(0, plan, detailStage, crawledPages);
+            if (plan.size() > 0) {
+                throw new IllegalStateException("Browser lost with " + category + " pages left in " + fromPage + ".." + toPage);
+            }
+            logger.info("Listed {} pages of {}, waiting for detail pages...", crawledPages.get(), category);
+        }
+        if (writer.isFailed()) {
+            throw new IllegalStateException("patents of " + category + " pages " + fromPage + ".." + toPage + " were not saved");
+        }
+    }
+
+    public Map<String, Integer> countPages(List<String> categories) {
+        Map<String, Integer> pageCounts = new LinkedHashMap<>();
+        try (PooledWebDriver lease = webDriverPool.borrow(parser.getBrowserProfile())) {
+            for (String category : categories) {
+                if (parser.openCategory(lease.driver(), category)) {
+                    int pages = parser.getPageCount(lease.driver());
+                    logger.info("Category {} has {} pages", category, pages);
+                    pageCounts.put(category, pages);
+                } else {
+                    logger.error("Skipping category, could not open it: {}", category);
+                }
+            }
+        }
+        return pageCounts;
+    }
+
+    /**
+     * Воркер держит свою BrowserSession: если Chrome упал, сессия перезапускает его и заново открывает категорию шарда,
+     * а страница, на которой это случилось, возвращается в шард (один раз - чтобы страница, роняющая вкладку,
+     * не перезапускала браузер бесконечно).
+     */
+    private void runWorker(int workerId, CrawlPlan plan, DetailFetchStage detailStage, AtomicInteger crawledPages) throws InterruptedException {
+        try (BrowserSession session = webDriverPool.openSession(parser.getBrowserProfile())) {
+            String openedCategory = null;
+            int lostOnPage = -1;
+            PageShard shard;
+
+            while ((shard = plan.next(openedCategory)) != null) {
+                logger.info("Worker {} took {}", workerId, shard);
+                String category = shard.getCategory();
+                int page;
+                while ((page = shard.claimNext()) > 0) {
+                    if (!category.equals(openedCategory)) {
+                        openedCategory = session.navigate(driver -> parser.openCategory(driver, category)) ? category : null;
+                        if (openedCategory == null) {
+                            // Браузер не может открыть реестр - отдаём остаток шарда другим воркерам
+                            shard.returnPage(page);
+                            plan.giveBack(shard);
+                            session.invalidate();
+                            logger.error("Worker {} stopped: could not open category {}", workerId, category);
+                            return;
+                        }
+                    }
+                    long pageStart = System.currentTimeMillis();
+                    try {
+                        parser.crawlPage(session.driver(), category, page, detailStage);
+                        crawledPages.incrementAndGet();
+                        if (!session.pageDone(System.currentTimeMillis() - pageStart)) {
+                            plan.giveBack(shard);
+                            logger.error("Worker {} stopped: browser session could not be recycled", workerId);
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        logger.error("Worker {} failed on {} page {}", workerId, category, page, e);
+                        if (BrowserSession.isSessionLost(e) && page != lostOnPage) {
+                            shard.returnPage(page);
+                            lostOnPage = page;
+                        }
+                        int restarts = session.getRestarts();
+                        if (!session.recover(e)) {
+                            plan.giveBack(shard);
+                            logger.error("Worker {} stopped: browser session could not be restored", workerId);
+                            return;
+                        }
+                        if (session.getRestarts() == restarts) {
+                            openedCategory = null;
+                        }
+                    }
+                }
+                plan.finished(shard);
+            }
+            logger.info("Worker {} finished: nothing left to take or split ({} browser restarts)", workerId, session.getRestarts());
+        }
+    }
+
+    /**
+     * Очередь ожидающих шардов и список шардов в работе, для выбора жертвы при разделении.
+     */
+    private class CrawlPlan {
+        private final Deque<PageShard> pending = new ArrayDeque<>();
+        private final List<PageShard> active = new ArrayList<>();
+
+        synchronized void add(PageShard shard) {
+            pending.addLast(shard);
+        }
+
+        synchronized int size() {
+            return pending.size();
+        }
+
+        synchronized PageShard next(String preferredCategory) {
+            PageShard shard = null;
+            for (Iterator<PageShard> it = pending.iterator(); it.hasNext(); ) {
+                PageShard candidate = it.next();
+                if (candidate.getCategory().equals(preferredCategory)) {
+                    it.remove();
+                    shard = candidate;
+                    break;
+                }
+            }
+            if (shard == null) {
+                shard = pending.pollFirst();
+            }
+            if (shard == null) {
+                shard = active.stream()
+                        .max(Comparator.comparingInt(PageShard::remaining))
+                        .map(victim -> victim.split(minSplitPages))
+                        .orElse(null);
+                if (shard != null) {
+                    logger.info("Split off {} for rebalancing", shard);
+                }
+            }
+            if (shard != null) {
+                active.add(shard);
+            }
+            return shard;
+        }
+
+        synchronized void finished(PageShard shard) {
+            active.remove(shard);
+        }
+
+        synchronized void giveBack(PageShard shard) {
+            active.remove(shard);
+            if (shard.remaining() > 0) {
+                pending.addFirst(shard);
+            }
+        }
+    }
+
+    /**
+     * Диапазон страниц [next, end) одной категории. Владелец забирает страницы с начала,
+     * разделение отрезает хвост - обе операции под одной блокировкой.
+     */
+    static class PageShard {
+        private final String category;
+        private int next;
+        private int end;
+
+        PageShard(String category, int first, int end) {
+            this.category = category;
+            this.next = first;
+            this.end = end;
+        }
+
+        String getCategory() {
+            return category;
+        }
+
+        synchronized int claimNext() {
+            return next < end ? next++ : -1;
+        }
+
+        synchronized void returnPage(int page) {
+            if (next == page + 1) {
+                next = page;
+            }
+        }
+
+        synchronized int remaining() {
+            return end - next;
+        }
+
+        synchronized PageShard split(int minPages) {
+            int remaining = end - next;
+            if (remaining < minPages * 2) {
+                return null;
+            }
+            int mid = next + remaining / 2;
+            PageShard tail = new PageShard(category, mid, end);
+            end = mid;
+            return tail;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return category + " pages " + next + "-" + (end - 1);
+        }
+    }
+}
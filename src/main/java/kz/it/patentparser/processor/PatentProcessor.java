@@ -1,18 +1,24 @@
 package kz.it.patentparser.processor;
 
+import kz.it.patentparser.enums.CrawlUnitKind;
 import kz.it.patentparser.enums.NavigationDirection;
+import kz.it.patentparser.enums.PatentCategory;
 import kz.it.patentparser.parser.EbulletinPatentFetcher;
 import kz.it.patentparser.parser.EbulletinPatentParser;
+import kz.it.patentparser.parser.GosReestrHttpPatentParser;
 import kz.it.patentparser.parser.GosReestrPatentParser;
+import kz.it.patentparser.service.CrawlWorkQueueService;
 import kz.it.patentparser.service.PatentRetryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -22,12 +28,25 @@ public class PatentProcessor {
     private final EbulletinPatentParser ebulletinPatentParser;
     private final EbulletinPatentFetcher ebulletinPatentFetcher;
     private final PatentRetryService patentRetryService;
+    private final GosReestrHttpPatentParser gosReestrHttpPatentParser;
+    private final GosReestrCrawlCoordinator gosReestrCrawlCoordinator;
+    private final ArchiveReparseService archiveReparseService;
+    private final CrawlWorkQueueService workQueue;
 
-    public PatentProcessor(GosReestrPatentParser gosReestrPatentParser, EbulletinPatentParser ebulletinPatentParser, EbulletinPatentFetcher ebulletinPatentFetcher, PatentRetryService patentRetryService) {
+    @Value("${gosreestr.crawl.shard-pages:25}")
+    private int shardPages;
+    @Value("${crawl.queue.doc-range-size:1000}")
+    private int docRangeSize;
+
+    public PatentProcessor(GosReestrPatentParser gosReestrPatentParser, EbulletinPatentParser ebulletinPatentParser, EbulletinPatentFetcher ebulletinPatentFetcher, PatentRetryService patentRetryService, GosReestrHttpPatentParser gosReestrHttpPatentParser, GosReestrCrawlCoordinator gosReestrCrawlCoordinator, ArchiveReparseService archiveReparseService, CrawlWorkQueueService workQueue) {
         this.gosReestrPatentParser = gosReestrPatentParser;
         this.ebulletinPatentParser = ebulletinPatentParser;
         this.ebulletinPatentFetcher = ebulletinPatentFetcher;
         this.patentRetryService = patentRetryService;
+        this.gosReestrHttpPatentParser = gosReestrHttpPatentParser;
+        this.gosReestrCrawlCoordinator = gosReestrCrawlCoordinator;
+        this.archiveReparseService = archiveReparseService;
+        this.workQueue = workQueue;
     }
 
     /**
@@ -36,16 +55,42 @@ public class PatentProcessor {
     public void runAllParsers() {
         logger.info("Starting all patent parsers...");
 
-        runParserForAllBothFromStartAndEnd("gosreestr");
+        runShardedCrawl();
 //        runAllCategoriesForParser("ebulletin");
         runAllCategoriesForParser("ebulletin", "", false);
 
         logger.info("All patent parsers have finished.");
     }
 
+    /**
+     * Еженедельное обновление: госреестр только выше водяных отметок категорий, затем ebulletin
+     */
+    public void runIncrementalParsers() {
+        logger.info("Starting incremental patent parsing...");
+
+        runIncremental();
+        runAllCategoriesForParser("ebulletin", "", false);
+
+        logger.info("Incremental patent parsing has finished.");
+    }
+
+    public void runIncremental() {
+        for (String category : gosReestrPatentParser.getCategoryNames()) {
+            try {
+                runIncremental(category);
+            } catch (IllegalStateException e) {
+                logger.error("Incremental parsing of {} failed: {}", category, e.getMessage());
+            }
+        }
+    }
+
+    public void runIncremental(String category) {
+        gosReestrPatentParser.parseIncremental(category);
+    }
+
     /**
      * Запуск всех категорий для одного парсера
-     * @param parserName - Название парсера ("gosreestr" или "ebulletin")
+     * @param parserName - Название парсера ("gosreestr", "gosreestr-http" или "ebulletin")
      */
     public void runAllCategoriesForParser(String parserName, String from, boolean both) {
         switch (parserName.toLowerCase()) {
@@ -55,6 +100,12 @@ public class PatentProcessor {
                 logger.info("Finished parsing all categories for GosReestr.");
                 break;
 
+            case "gosreestr-http":
+                logger.info("Starting all categories for GosReestrHttpPatentParser...");
+                gosReestrHttpPatentParser.parseAll(from, both);
+                logger.info("Finished parsing all categories for GosReestr over HTTP.");
+                break;
+
             case "ebulletin":
                 logger.info("Starting all categories for EbulletinPatentParser...");
                 ebulletinPatentFetcher.parseAll(from, both);
@@ -68,7 +119,7 @@ public class PatentProcessor {
 
     /**
      * Запуск парсера для одной категории
-     * @param parserName - Название парсера ("gosreestr" или "ebulletin")
+     * @param parserName - Название парсера ("gosreestr", "gosreestr-http" или "ebulletin")
      * @param category - Название категории
      */
     public void runParser(String parserName, String category) {
@@ -79,6 +130,12 @@ public class PatentProcessor {
                 logger.info("Finished parsing category {} for GosReestr.", category);
                 break;
 
+            case "gosreestr-http":
+                logger.info("Starting parsing category {} for GosReestrHttpPatentParser...", category);
+                gosReestrHttpPatentParser.parseCategory(category);
+                logger.info("Finished parsing category {} for GosReestr over HTTP.", category);
+                break;
+
             case "ebulletin":
                 logger.info("Starting parsing category {} for EbulletinPatentParser...", category);
                 ebulletinPatentFetcher.parseCategory(category);
@@ -98,6 +155,12 @@ public class PatentProcessor {
                 logger.info("Finished parsing category {} for GosReestr.", category);
                 break;
 
+            case "gosreestr-http":
+                logger.info("Starting parsing category {} for GosReestrHttpPatentParser...", category);
+                gosReestrHttpPatentParser.parseFrom(category, from, both);
+                logger.info("Finished parsing category {} for GosReestr over HTTP.", category);
+                break;
+
             case "ebulletin":
                 logger.info("Starting parsing category {} for EbulletinPatentParser...", category);
                 ebulletinPatentFetcher.parseFrom(category, from, both);
@@ -142,6 +205,130 @@ public class PatentProcessor {
         }
     }
 
+    /**
+     * Обход госреестра K браузерами по шардам страниц (все категории или одна)
+     */
+    public void runShardedCrawl() {
+        gosReestrCrawlCoordinator.crawlAll();
+    }
+
+    public void runShardedCrawl(String category) {
+        gosReestrCrawlCoordinator.crawl(List.of(category));
+    }
+
+    /**
+     * Страницы fromPage..toPage категории госреестра одним браузером (единица общей очереди обхода)
+     */
+    public void runShardedPages(String category, int fromPage, int toPage) throws InterruptedException {
+        gosReestrCrawlCoordinator.crawlPages(category, fromPage, toPage);
+    }
+
+    public void runEbulletinYear(int year) {
+        ebulletinPatentFetcher.parseYear(year);
+    }
+
+    /**
+     * Еженедельное обновление в общую очередь обхода: инкрементальный обход каждой категории госреестра
+     * и годы ebulletin. Узлы, поставившие тот же runKey, не дублируют единицы.
+     */
+    public int enqueueIncrementalParsers(String runKey) {
+        int added = 0;
+        for (String category : gosReestrPatentParser.getCategoryNames()) {
+            added += workQueue.enqueue(runKey, CrawlUnitKind.GOSREESTR_INCREMENTAL, category, 0, 0) ? 1 : 0;
+        }
+        for (String year : EbulletinPatentFetcher.getYears()) {
+            added += workQueue.enqueue(runKey, CrawlUnitKind.EBULLETIN_YEAR, "ebulletin", Long.parseLong(year), Long.parseLong(year)) ? 1 : 0;
+        }
+        logger.info("Enqueued {} incremental crawl units for run {}", added, runKey);
+        return added;
+    }
+
+    public int enqueueDiscovery(String runKey) {
+        int added = 0;
+        for (PatentCategory category : PatentCategory.values()) {
+            added += workQueue.enqueue(runKey, CrawlUnitKind.GOSREESTR_DISCOVERY, category.getName(), 0, 0) ? 1 : 0;
+        }
+        logger.info("Enqueued {} discovery crawl units for run {}", added, runKey);
+        return added;
+    }
+
+    /**
+     * Шарды страниц всех категорий госреестра (по gosreestr.crawl.shard-pages) в общую очередь; число страниц
+     * считается в браузере этого узла.
+     */
+    public int enqueueShardedCrawl(String runKey) {
+        int added = 0;
+        for (Map.Entry<String, Integer> entry : gosReestrCrawlCoordinator.countPages(gosReestrPatentParser.getCategoryNames()).entrySet()) {
+            for (int first = 1; first <= entry.getValue(); first += shardPages) {
+                int last = Math.min(first + shardPages - 1, entry.getValue());
+                added += workQueue.enqueue(runKey, CrawlUnitKind.GOSREESTR_PAGES, entry.getKey(), first, last) ? 1 : 0;
+            }
+        }
+        logger.info("Enqueued {} page shards for run {}", added, runKey);
+        return added;
+    }
+
+    /**
+     * Диапазон docNumber госреестра в общую очередь кусками по crawl.queue.doc-range-size номеров
+     */
+    public int enqueueHttpRange(String runKey, String category, long from, long to) {
+        PatentCategory patentCategory = PatentCategory.fromName(category);
+        if (patentCategory == null) {
+            logger.warn("Unknown gosreestr category: {}", category);
+            return 0;
+        }
+        int added = 0;
+        for (long first = Math.min(from, to); first <= Math.max(from, to); first += docRangeSize) {
+            long last = Math.min(first + docRangeSize - 1, Math.max(from, to));
+            added += workQueue.enqueue(runKey, CrawlUnitKind.GOSREESTR_DOC_RANGE, category, first, last) ? 1 : 0;
+        }
+        logger.info("Enqueued {} docNumber ranges of {} for run {}", added, category, runKey);
+        return added;
+    }
+
+    public Map<String, Object> getWorkQueueMetrics() {
+        return workQueue.snapshot();
+    }
+
+    /**
+     * Загрузка диапазона docNumber госреестра по HTTP, без браузера
+     */
+    public void runHttpRange(String category, long from, long to) throws InterruptedException {
+        PatentCategory patentCategory = PatentCategory.fromName(category);
+        if (patentCategory == null) {
+            throw new IllegalArgumentException("Unknown gosreestr category: " + category);
+        }
+        gosReestrHttpPatentParser.crawlRange(patentCategory, from, to);
+    }
+
+    /**
+     * Поиск и загрузка новых docNumber госреестра пробами по HTTP (все категории или одна)
+     */
+    public void runDiscovery() {
+        for (PatentCategory category : PatentCategory.values()) {
+            try {
+                gosReestrHttpPatentParser.discoverNew(category);
+            } catch (IllegalStateException e) {
+                logger.error("Discovery of {} failed: {}", category.getName(), e.getMessage());
+            }
+        }
+    }
+
+    public void runDiscovery(String category) {
+        PatentCategory patentCategory = PatentCategory.fromName(category);
+        if (patentCategory == null) {
+            throw new IllegalArgumentException("Unknown gosreestr category: " + category);
+        }
+        gosReestrHttpPatentParser.discoverNew(patentCategory);
+    }
+
+    /**
+     * Повторный разбор архива сырых ответов без сети; category == null - все категории
+     */
+    public Map<String, Object> runReparse(String source, String category) {
+        return archiveReparseService.reparse(source, category);
+    }
+
     public void runRetryService() {
         patentRetryService.retryFailedPatents();
     }
@@ -0,0 +1,12 @@
+package kz.it.patentparser.repository;
+
+import kz.it.patentparser.model.CrawlCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface CrawlCheckpointRepository extends JpaRepository<CrawlCheckpoint, Long> {
+    Optional<CrawlCheckpoint> findByCategoryAndDirection(String category, String direction);
+
+    void deleteByCategoryAndDirection(String category, String direction);
+}
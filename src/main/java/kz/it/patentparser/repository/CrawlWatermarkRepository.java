@@ -0,0 +1,7 @@
+package kz.it.patentparser.repository;
+
+import kz.it.patentparser.model.CrawlWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CrawlWatermarkRepository extends JpaRepository<CrawlWatermark, String> {
+}
@@ -0,0 +1,77 @@
+package kz.it.patentparser.repository;
+
+import kz.it.patentparser.model.CrawlWorkUnit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Запросы очереди пишутся на SQL PostgreSQL: SKIP LOCKED, ON CONFLICT и время базы (now()),
+ * чтобы аренды узлов не зависели от их часов.
+ */
+public interface CrawlWorkUnitRepository extends JpaRepository<CrawlWorkUnit, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO crawl_work_units (run_key, kind, category, range_from, range_to, status, attempts, created_at, updated_at) " +
+            "VALUES (:runKey, :kind, :category, :rangeFrom, :rangeTo, 'PENDING', 0, now(), now()) " +
+            "ON CONFLICT (run_key, kind, category, range_from) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("runKey") String runKey, @Param("kind") String kind, @Param("category") String category,
+                       @Param("rangeFrom") long rangeFrom, @Param("rangeTo") long rangeTo);
+
+    /**
+     * Следующая свободная единица: ожидающая или с истёкшей арендой (узел умер). Строка остаётся заблокированной
+     * до конца транзакции, другие узлы её пропускают.
+     */
+    @Query(value = "SELECT * FROM crawl_work_units " +
+            "WHERE status = 'PENDING' OR (status = 'CLAIMED' AND lease_until < now()) " +
+            "ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<CrawlWorkUnit> lockNextClaimable();
+
+    @Modifying
+    @Query(value = "UPDATE crawl_work_units SET status = 'CLAIMED', owner = :owner, attempts = attempts + 1, " +
+            "lease_until = now() + make_interval(secs => :leaseSeconds), updated_at = now() WHERE id = :id", nativeQuery = true)
+    int claim(@Param("id") long id, @Param("owner") String owner, @Param("leaseSeconds") double leaseSeconds);
+
+    @Modifying
+    @Query(value = "UPDATE crawl_work_units SET lease_until = now() + make_interval(secs => :leaseSeconds), updated_at = now() " +
+            "WHERE id = :id AND owner = :owner AND status = 'CLAIMED'", nativeQuery = true)
+    int renewLease(@Param("id") long id, @Param("owner") String owner, @Param("leaseSeconds") double leaseSeconds);
+
+    @Modifying
+    @Query(value = "UPDATE crawl_work_units SET status = 'DONE', lease_until = NULL, updated_at = now() " +
+            "WHERE id = :id AND owner = :owner AND status = 'CLAIMED'", nativeQuery = true)
+    int complete(@Param("id") long id, @Param("owner") String owner);
+
+    /**
+     * Неудачная попытка: единица возвращается в очередь, после maxAttempts попыток - FAILED.
+     */
+    @Modifying
+    @Query(value = "UPDATE crawl_work_units SET status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END, " +
+            "owner = NULL, lease_until = NULL, last_error = :error, updated_at = now() " +
+            "WHERE id = :id AND owner = :owner AND status = 'CLAIMED'", nativeQuery = true)
+    int fail(@Param("id") long id, @Param("owner") String owner, @Param("error") String error, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Узел останавливается: единица отдаётся без учёта попытки.
+     */
+    @Modifying
+    @Query(value = "UPDATE crawl_work_units SET status = 'PENDING', owner = NULL, lease_until = NULL, " +
+            "attempts = GREATEST(attempts - 1, 0), updated_at = now() " +
+            "WHERE id = :id AND owner = :owner AND status = 'CLAIMED'", nativeQuery = true)
+    int release(@Param("id") long id, @Param("owner") String owner);
+
+    @Modifying
+    @Query(value = "UPDATE crawl_work_units SET status = 'FAILED', owner = NULL, lease_until = NULL, updated_at = now() " +
+            "WHERE id = :id", nativeQuery = true)
+    int markFailed(@Param("id") long id);
+
+    @Query(value = "SELECT status, count(*) FROM crawl_work_units GROUP BY status", nativeQuery = true)
+    List<Object[]> countByStatus();
+
+    @Query(value = "SELECT owner, count(*) FROM crawl_work_units WHERE status = 'CLAIMED' AND lease_until >= now() GROUP BY owner", nativeQuery = true)
+    List<Object[]> countActiveByOwner();
+}
@@ -0,0 +1,10 @@
+package kz.it.patentparser.repository;
+
+import kz.it.patentparser.model.DetailPageFingerprint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface DetailPageFingerprintRepository extends JpaRepository<DetailPageFingerprint, Long> {
+    Optional<DetailPageFingerprint> findByCategoryAndDocNumber(String category, String docNumber);
+}
@@ -3,6 +3,7 @@ package kz.it.patentparser.repository;
 import kz.it.patentparser.model.DocNumber;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -10,6 +11,9 @@ public interface DocNumberRepository extends JpaRepository<DocNumber, Long> {
     boolean existsByCategoryAndDocumentNumber(String category, String documentNumber);
     List<DocNumber> findByIsParsedFalse();
 
+    @Query("SELECT MAX(CAST(d.documentNumber AS long)) FROM DocNumber d WHERE d.category = :category")
+    Long findMaxDocumentNumber(@Param("category") String category);
+
     @Query("SELECT d FROM DocNumber d WHERE d.category = 'Товарные знаки' AND NOT EXISTS (SELECT 1 FROM PatentAdditionalField p WHERE p.patent.docNumber = d.documentNumber AND p.label = 'imageBase64') ORDER BY CAST(d.documentNumber AS long) ASC")
     List<DocNumber> findPatentsWithoutImagesAsc();
 
@@ -48,6 +48,7 @@ public interface PatentRepository extends JpaRepository<Patent, Long>, JpaSpecif
             Pageable pageable
     );
     Optional<Patent> findByRegistrationNumberAndCategoryAndPatentSite(String registrationNumber, String category, String patentSite);
+    List<Patent> findAllByRegistrationNumberIn(List<String> registrationNumbers);
     List<Patent> findByTitleContainingAndRegistrationDateBetween(String title, LocalDate startDate, LocalDate endDate);
     //expired value should check date from registrationDate, if it's more than 10 years, then it's expired
 
@@ -117,6 +118,7 @@ public interface PatentRepository extends JpaRepository<Patent, Long>, JpaSpecif
     );
 
     Optional<Patent> findByDocNumber(String docNumber);
+    Optional<Patent> findByDocNumberAndCategoryAndPatentSite(String docNumber, String category, String patentSite);
     List<Patent> findAllBySecurityDocNumberIn(List<String> securityDocNumbers);
 
     @Query("SELECT p FROM Patent p WHERE 1=1")
@@ -3,23 +3,46 @@ package kz.it.patentparser.scheduler;
 import kz.it.patentparser.processor.PatentProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+
 @Component
 public class PatentScheduler {
     private static final Logger logger = LoggerFactory.getLogger(PatentScheduler.class);
     private final PatentProcessor patentProcessor;
 
+    // С общей очередью обхода каждый узел только ставит план запуска (один раз на дату), работу делят воркеры узлов
+    @Value("${crawl.queue.enabled:false}")
+    private boolean queueEnabled;
+
     public PatentScheduler(PatentProcessor patentProcessor) {
         this.patentProcessor = patentProcessor;
     }
 
-    // Запуск парсеров каждую неделю в понедельник в 03:00
+    // Запуск парсеров каждую неделю в понедельник в 03:00, только новые записи выше водяных отметок
     @Scheduled(cron = "0 0 3 * * MON")
     public void runParsersWeekly() {
+        if (queueEnabled) {
+            patentProcessor.enqueueIncrementalParsers("weekly-" + LocalDate.now());
+            return;
+        }
         logger.info("Starting weekly patent parsing...");
-        patentProcessor.runAllParsers();
+        patentProcessor.runIncrementalParsers();
         logger.info("Weekly patent parsing completed.");
     }
+
+    // Ежедневный поиск новых номеров госреестра пробами по HTTP, без браузера
+    @Scheduled(cron = "${gosreestr.discovery.cron:0 0 2 * * *}")
+    public void runDiscoveryNightly() {
+        if (queueEnabled) {
+            patentProcessor.enqueueDiscovery("discovery-" + LocalDate.now());
+            return;
+        }
+        logger.info("Starting nightly gosreestr discovery...");
+        patentProcessor.runDiscovery();
+        logger.info("Nightly gosreestr discovery completed.");
+    }
 }
@@ -0,0 +1,11 @@
+package kz.it.patentparser.selenium;
+
+/**
+ * Профиль браузера на время выдачи из пула.
+ * FULL - страница загружается целиком (нужно ImageScraper и всему, что читает картинки),
+ * LEAN - для обходов списков: картинки, шрифты и сторонние скрипты блокируются, окно меньше.
+ */
+public enum BrowserProfile {
+    FULL,
+    LEAN
+}
@@ -0,0 +1,133 @@
+package kz.it.patentparser.selenium;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Настройка профилей на выданной из пула сессии и замеры по профилям.
+ * LEAN включается через CDP (Network.setBlockedURLs) на время выдачи, при возврате в пул блокировка снимается,
+ * поэтому один пул Chrome обслуживает и обходы списков, и ImageScraper.
+ * Каждая compare-every-я LEAN-сессия работает в FULL: так в одном прогоне видно время страницы
+ * и объём JS-кучи для обоих профилей.
+ */
+public class BrowserProfiles {
+    private static final Logger logger = LoggerFactory.getLogger(BrowserProfiles.class);
+    private static final Dimension FULL_WINDOW = new Dimension(1920, 1080);
+
+    private final List<String> blockedUrls;
+    private final Dimension leanWindow;
+    private final int compareEvery;
+    private final AtomicLong leanSessions = new AtomicLong();
+    private final Map<BrowserProfile, ProfileStats> stats = new EnumMap<>(BrowserProfile.class);
+
+    public BrowserProfiles(List<String> blockedUrls, Dimension leanWindow, int compareEvery) {
+        this.blockedUrls = List.copyOf(blockedUrls);
+        this.leanWindow = leanWindow;
+        this.compareEvery = compareEvery;
+        for (BrowserProfile profile : BrowserProfile.values()) {
+            stats.put(profile, new ProfileStats());
+        }
+    }
+
+    /**
+     * Профиль новой сессии обхода: запрошенный, кроме контрольных FULL-сессий для сравнения.
+     */
+    public BrowserProfile forSession(BrowserProfile requested) {
+        if (requested == BrowserProfile.LEAN && compareEvery > 0 && leanSessions.incrementAndGet() % compareEvery == 0) {
+            logger.info("Running a FULL browser session for profile comparison");
+            return BrowserProfile.FULL;
+        }
+        return requested;
+    }
+
+    void apply(WebDriver driver, BrowserProfile profile) {
+        if (profile == BrowserProfile.LEAN) {
+            configure(driver, blockedUrls, leanWindow);
+        }
+    }
+
+    void reset(WebDriver driver, BrowserProfile profile) {
+        if (profile == BrowserProfile.LEAN) {
+            configure(driver, List.of(), FULL_WINDOW);
+        }
+    }
+
+    private void configure(WebDriver driver, List<String> urls, Dimension window) {
+        try {
+            if (driver instanceof ChromiumDriver chromium) {
+                chromium.executeCdpCommand("Network.enable", Map.of());
+                chromium.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", urls));
+            }
+            driver.manage().window().setSize(window);
+        } catch (WebDriverException e) {
+            logger.warn("Could not switch browser profile: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Время обработки страницы и текущий размер JS-кучи вкладки (performance.memory, только Chrome).
+     */
+    void recordPage(BrowserProfile profile, long pageMillis, WebDriver driver) {
+        long heapBytes = -1;
+        try {
+            Object heap = ((JavascriptExecutor) driver)
+                    .executeScript("return window.performance && performance.memory ? performance.memory.usedJSHeapSize : null;");
+            if (heap instanceof Number number) {
+                heapBytes = number.longValue();
+            }
+        } catch (WebDriverException e) {
+            logger.debug("Could not read JS heap size: {}", e.getMessage());
+        }
+        stats.get(profile).record(pageMillis, heapBytes);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.forEach((profile, profileStats) -> result.put(profile.name(), profileStats.snapshot()));
+        double fullMs = stats.get(BrowserProfile.FULL).averagePageMillis();
+        double leanMs = stats.get(BrowserProfile.LEAN).averagePageMillis();
+        if (fullMs > 0 && leanMs > 0) {
+            result.put("leanSpeedup", Math.round(fullMs / leanMs * 100) / 100.0);
+        }
+        return result;
+    }
+
+    private static class ProfileStats {
+        private long pages;
+        private long pageMillis;
+        private long heapSamples;
+        private long heapBytes;
+
+        synchronized void record(long millis, long heap) {
+            pages++;
+            pageMillis += millis;
+            if (heap >= 0) {
+                heapSamples++;
+                heapBytes += heap;
+            }
+        }
+
+        synchronized double averagePageMillis() {
+            return pages == 0 ? 0 : (double) pageMillis / pages;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("pages", pages);
+            values.put("avgPageMs", pages == 0 ? 0 : pageMillis / pages);
+            values.put("avgJsHeapMb", heapSamples == 0 ? 0.0 : Math.round(heapBytes / (double) heapSamples / 1024 / 1024 * 10) / 10.0);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package kz.it.patentparser.selenium;
+
+import kz.it.patentparser.selenium.WebDriverPool.PooledWebDriver;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Predicate;
+
+/**
+ * Браузерная сессия длинного обхода, которая переживает потерю Chrome.
+ * Сессия помнит последнюю навигацию (открытие категории в текстовом виде по 200 карточек) и после перезапуска
+ * браузера повторяет её; на нужную страницу обход переходит сам, запрашивая её заново по номеру.
+ * Перезапуск происходит, когда сессия умерла (NoSuchSessionException, падение или зависание Chrome),
+ * каждые recycle-pages страниц и когда страницы стали обрабатываться в degrade-factor раз дольше,
+ * чем в начале сессии (DOM разрастается от прокруток). Профиль сессии сохраняется при перезапусках,
+ * время каждой страницы пишется в замеры профиля.
+ * <pre>
+ * try (BrowserSession session = webDriverPool.openSession(BrowserProfile.LEAN)) {
+ *     session.navigate(driver -> openCategory(driver, category));
+ *     ...
+ *     session.pageDone(pageMillis);
+ * }
+ * </pre>
+ */
+public class BrowserSession implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BrowserSession.class);
+    private static final int BASELINE_PAGES = 5;
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final WebDriverPool pool;
+    private final BrowserProfiles profiles;
+    private final BrowserProfile profile;
+    private final int recyclePages;
+    private final double degradeFactor;
+
+    private PooledWebDriver lease;
+    private Predicate<WebDriver> navigation;
+    private int pages;
+    private double baselineMillis;
+    private double averageMillis;
+    private int restarts;
+
+    BrowserSession(WebDriverPool pool, BrowserProfiles profiles, BrowserProfile profile, int recyclePages, double degradeFactor) {
+        this.pool = pool;
+        this.profiles = profiles;
+        this.profile = profile;
+        this.recyclePages = recyclePages;
+        this.degradeFactor = degradeFactor;
+        this.lease = pool.borrow(profile);
+    }
+
+    /**
+     * Текущий драйвер; после перезапуска - новый, поэтому его не стоит сохранять между страницами.
+     */
+    public WebDriver driver() {
+        return lease.driver();
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * Выполняет навигацию и запоминает её для повтора после перезапуска.
+     */
+    public boolean navigate(Predicate<WebDriver> navigation) {
+        this.navigation = navigation;
+        return navigation.test(driver());
+    }
+
+    /**
+     * Отвечает ли Chrome на простой скрипт.
+     */
+    public boolean isAlive() {
+        try {
+            return ((JavascriptExecutor) driver()).executeScript("return 1;") != null;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ошибка означает, что сессии больше нет и продолжать с этим драйвером бессмысленно.
+     */
+    public static boolean isSessionLost(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NoSuchSessionException || cause instanceof SessionNotCreatedException
+                    || cause instanceof UnreachableBrowserException) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (cause instanceof WebDriverException && message != null
+                    && (message.contains("chrome not reachable") || message.contains("tab crashed")
+                    || message.contains("session deleted") || message.contains("disconnected"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ошибка на странице: если сессия потеряна или не отвечает, перезапускает её.
+     * false - браузер перезапущен, но повторить навигацию не удалось.
+     */
+    public boolean recover(Exception error) {
+        if (!isSessionLost(error) && isAlive()) {
+            return true;
+        }
+        return restart("session lost: " + error.getMessage());
+    }
+
+    /**
+     * Страница обработана за pageMillis: каждые recycle-pages страниц и при деградации сессия пересоздаётся.
+     * false - пересоздать не удалось.
+     */
+    public boolean pageDone(long pageMillis) {
+        profiles.recordPage(profile, pageMillis, driver());
+        pages++;
+        if (pages <= BASELINE_PAGES) {
+            baselineMillis += (pageMillis - baselineMillis) / pages;
+            averageMillis = baselineMillis;
+        } else {
+            averageMillis = averageMillis * (1 - EWMA_WEIGHT) + pageMillis * EWMA_WEIGHT;
+        }
+
+        if (recyclePages > 0 && pages >= recyclePages) {
+            return restart("recycling after " + pages + " pages");
+        }
+        if (pages > BASELINE_PAGES && baselineMillis > 0 && averageMillis > baselineMillis * degradeFactor) {
+            return restart(String.format("pages take %.0f ms against %.0f ms at start", averageMillis, baselineMillis));
+        }
+        return true;
+    }
+
+    /**
+     * Закрывает текущий Chrome, берёт новый из пула и повторяет последнюю навигацию.
+     */
+    public boolean restart(String reason) {
+        restarts++;
+        logger.warn("Restarting browser session ({}), restart #{}", reason, restarts);
+        lease.invalidate();
+        lease.close();
+        lease = pool.borrow(profile);
+        pages = 0;
+        baselineMillis = 0;
+        averageMillis = 0;
+        if (navigation == null) {
+            return true;
+        }
+        try {
+            if (navigation.test(driver())) {
+                return true;
+            }
+        } catch (WebDriverException e) {
+            logger.error("Navigation replay failed after restart: {}", e.getMessage());
+        }
+        lease.invalidate();
+        return false;
+    }
+
+    /**
+     * Сессия, которую не удалось восстановить, не возвращается в пул.
+     */
+    public void invalidate() {
+        lease.invalidate();
+    }
+
+    @Override
+    public void close() {
+        lease.close();
+    }
+}
@@ -0,0 +1,83 @@
+package kz.it.patentparser.selenium;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Создаёт и проверяет headless Chrome для WebDriverPool.
+ * Сессия пересоздаётся после maxUses выдач, чтобы не копить память и состояние страницы.
+ */
+public class ChromeDriverFactory extends BasePooledObjectFactory<WebDriver> {
+    private static final Logger logger = LoggerFactory.getLogger(ChromeDriverFactory.class);
+
+    private final int maxUses;
+
+    public ChromeDriverFactory(String driverPath, int maxUses) {
+        System.setProperty("webdriver.chrome.driver", driverPath);
+        this.maxUses = maxUses;
+    }
+
+    @Override
+    public WebDriver create() {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--window-size=1920,1080");
+
+        WebDriver driver = new ChromeDriver(options);
+        logger.info("Started new Chrome session.");
+        return driver;
+    }
+
+    @Override
+    public PooledObject<WebDriver> wrap(WebDriver driver) {
+        return new DefaultPooledObject<>(driver);
+    }
+
+    /**
+     * Живая сессия отвечает на простой скрипт; упавший Chrome или потерянная сессия - нет.
+     */
+    @Override
+    public boolean validateObject(PooledObject<WebDriver> p) {
+        try {
+            Object result = ((JavascriptExecutor) p.getObject()).executeScript("return 1;");
+            return result != null;
+        } catch (Exception e) {
+            logger.warn("Chrome session failed health check: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Вызывается при возврате в пул. Исключение здесь заставляет пул уничтожить сессию,
+     * так и реализован лимит maxUses.
+     */
+    @Override
+    public void passivateObject(PooledObject<WebDriver> p) {
+        if (p.getBorrowedCount() >= maxUses) {
+            throw new IllegalStateException("Chrome session reached " + maxUses + " uses, recycling");
+        }
+        WebDriver driver = p.getObject();
+        driver.manage().deleteAllCookies();
+        driver.get("about:blank");
+    }
+
+    @Override
+    public void destroyObject(PooledObject<WebDriver> p) {
+        try {
+            p.getObject().quit();
+            logger.info("Closed Chrome session after {} uses.", p.getBorrowedCount());
+        } catch (Exception e) {
+            logger.warn("Error closing Chrome session: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package kz.it.patentparser.selenium;
+
+import kz.it.patentparser.selenium.ReadinessMetrics.WaitKind;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ожидание готовности страниц госреестра по реальным сигналам вместо фиксированных Thread.sleep:
+ * завершение DevExpress callback у cvReestr, скрытие панелей загрузки,
+ * отсутствие изменений DOM в течение quiet-period и стабильное число карточек.
+ * Таймаут не считается ошибкой: метод возвращает false, а вызывающий код продолжает,
+ * как продолжал бы после sleep. Время каждого ожидания пишется в ReadinessMetrics.
+ */
+@Component
+public class PageReadiness {
+    private static final Logger logger = LoggerFactory.getLogger(PageReadiness.class);
+
+    private static final String CALLBACK_IDLE_SCRIPT =
+            "var cv = window.cvReestr;" +
+            "return !(cv && typeof cv.InCallback === 'function' && cv.InCallback());";
+    private static final String LAST_MUTATION_SCRIPT =
+            "if (!window.__kpMutation) {" +
+            "  window.__kpMutation = { last: Date.now() };" +
+            "  new MutationObserver(function () { window.__kpMutation.last = Date.now(); })" +
+            "    .observe(document.body, { childList: true, subtree: true, attributes: true });" +
+            "}" +
+            "return Date.now() - window.__kpMutation.last;";
+    private static final By LOADING_PANEL = By.id("LoadingPanel_LD");
+    private static final By CARD_VIEW_PANEL = By.id("cvReestr_LD");
+    private static final By CARDS = By.cssSelector("div.dxcvFlowCard_Material");
+
+    private final ReadinessMetrics metrics = new ReadinessMetrics();
+
+    @Value("${selenium.readiness.poll-interval-ms:100}")
+    private long pollIntervalMs;
+    @Value("${selenium.readiness.callback-timeout-ms:20000}")
+    private long callbackTimeoutMs;
+    @Value("${selenium.readiness.panel-timeout-ms:20000}")
+    private long panelTimeoutMs;
+    @Value("${selenium.readiness.quiet-period-ms:500}")
+    private long quietPeriodMs;
+    @Value("${selenium.readiness.quiet-timeout-ms:10000}")
+    private long quietTimeoutMs;
+    @Value("${selenium.readiness.card-stable-polls:3}")
+    private int cardStablePolls;
+    @Value("${selenium.readiness.card-timeout-ms:20000}")
+    private long cardTimeoutMs;
+
+    public ReadinessMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean awaitCallbackComplete(WebDriver driver) {
+        return await(driver, WaitKind.CALLBACK, callbackTimeoutMs,
+                d -> Boolean.TRUE.equals(((JavascriptExecutor) d).executeScript(CALLBACK_IDLE_SCRIPT)));
+    }
+
+    public boolean awaitLoadingPanelsHidden(WebDriver driver) {
+        return await(driver, WaitKind.LOADING_PANELS, panelTimeoutMs,
+                ExpectedConditions.and(
+                        ExpectedConditions.invisibilityOfElementLocated(LOADING_PANEL),
+                        ExpectedConditions.invisibilityOfElementLocated(CARD_VIEW_PANEL)));
+    }
+
+    /**
+     * Ждёт, пока DOM не меняется хотя бы quiet-period. Наблюдатель ставится в документ при первом вызове.
+     */
+    public boolean awaitDomQuiet(WebDriver driver) {
+        return await(driver, WaitKind.DOM_QUIET, quietTimeoutMs, d -> {
+            Object sinceLastMutation = ((JavascriptExecutor) d).executeScript(LAST_MUTATION_SCRIPT);
+            return sinceLastMutation instanceof Number && ((Number) sinceLastMutation).longValue() >= quietPeriodMs;
+        });
+    }
+
+    /**
+     * Ждёт, пока число карточек больше нуля и не меняется card-stable-polls опросов подряд.
+     */
+    public boolean awaitCardCountStable(WebDriver driver) {
+        int[] last = {-1};
+        int[] stablePolls = {0};
+        return await(driver, WaitKind.CARD_COUNT, cardTimeoutMs, d -> {
+            int count = d.findElements(CARDS).size();
+            stablePolls[0] = count > 0 && count == last[0] ? stablePolls[0] + 1 : 0;
+            last[0] = count;
+            return stablePolls[0] >= cardStablePolls;
+        });
+    }
+
+    /**
+     * Страница после действия пользователя (клик, выбор категории): callback завершён, панели скрыты, DOM успокоился.
+     */
+    public boolean awaitSettled(WebDriver driver) {
+        return awaitCallbackComplete(driver)
+                & awaitLoadingPanelsHidden(driver)
+                & awaitDomQuiet(driver);
+    }
+
+    /**
+     * Список карточек после смены страницы или размера страницы.
+     */
+    public boolean awaitCardsReady(WebDriver driver) {
+        return awaitCallbackComplete(driver)
+                & awaitLoadingPanelsHidden(driver)
+                & awaitCardCountStable(driver);
+    }
+
+    private boolean await(WebDriver driver, WaitKind kind, long timeoutMs, ExpectedCondition<Boolean> condition) {
+        long start = System.nanoTime();
+        boolean ready = true;
+        try {
+            new WebDriverWait(driver, Duration.ofMillis(timeoutMs), Duration.ofMillis(pollIntervalMs))
+                    .ignoring(JavascriptException.class)
+                    .ignoring(StaleElementReferenceException.class)
+                    .until(condition);
+        } catch (TimeoutException e) {
+            ready = false;
+            logger.warn("Timed out after {} ms waiting for {}", timeoutMs, kind);
+        } finally {
+            metrics.record(kind, System.nanoTime() - start, !ready);
+        }
+        return ready;
+    }
+}
@@ -0,0 +1,72 @@
+package kz.it.patentparser.selenium;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сколько времени браузерные парсеры проводят в ожиданиях, по видам сигналов.
+ * Помимо общих счётчиков копит время ожиданий текущего потока,
+ * чтобы парсер мог залогировать, сколько из времени страницы ушло на ожидание.
+ */
+public class ReadinessMetrics {
+
+    public enum WaitKind {
+        CALLBACK, LOADING_PANELS, DOM_QUIET, CARD_COUNT
+    }
+
+    private final Map<WaitKind, Stat> stats = new EnumMap<>(WaitKind.class);
+    private final ThreadLocal<long[]> pageWaitNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    public ReadinessMetrics() {
+        for (WaitKind kind : WaitKind.values()) {
+            stats.put(kind, new Stat());
+        }
+    }
+
+    void record(WaitKind kind, long nanos, boolean timedOut) {
+        Stat stat = stats.get(kind);
+        stat.count.increment();
+        stat.totalNanos.add(nanos);
+        stat.maxNanos.accumulateAndGet(nanos, Math::max);
+        if (timedOut) {
+            stat.timeouts.increment();
+        }
+        pageWaitNanos.get()[0] += nanos;
+    }
+
+    /**
+     * Возвращает время ожиданий текущего потока с прошлого вызова и обнуляет его.
+     */
+    public long takePageWaitMillis() {
+        long[] holder = pageWaitNanos.get();
+        long millis = holder[0] / 1_000_000;
+        holder[0] = 0;
+        return millis;
+    }
+
+    public Map<String, Map<String, Long>> snapshot() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        stats.forEach((kind, stat) -> {
+            long count = stat.count.sum();
+            long totalMs = stat.totalNanos.sum() / 1_000_000;
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("count", count);
+            values.put("timeouts", stat.timeouts.sum());
+            values.put("totalMs", totalMs);
+            values.put("avgMs", count == 0 ? 0 : totalMs / count);
+            values.put("maxMs", stat.maxNanos.get() / 1_000_000);
+            result.put(kind.name(), values);
+        });
+        return result;
+    }
+
+    private static class Stat {
+        final LongAdder count = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+}
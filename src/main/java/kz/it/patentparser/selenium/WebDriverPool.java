@@ -0,0 +1,124 @@
+package kz.it.patentparser.selenium;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Общий ограниченный пул headless Chrome для всех Selenium-парсеров и ImageScraper.
+ * Использование:
+ * <pre>
+ * try (PooledWebDriver lease = webDriverPool.borrow()) {
+ *     WebDriver driver = lease.driver();
+ *     ...
+ * }
+ * </pre>
+ * Если сессия сломалась, вызовите lease.invalidate() - она будет закрыта, а не возвращена в пул.
+ * Для многочасовых обходов есть openSession(): BrowserSession сам перезапускает упавший или деградировавший Chrome.
+ * borrow(BrowserProfile.LEAN) выдаёт сессию без картинок, шрифтов и сторонних скриптов (см. BrowserProfiles).
+ */
+public class WebDriverPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WebDriverPool.class);
+
+    private final GenericObjectPool<WebDriver> pool;
+    private final BrowserProfiles profiles;
+    private final int recyclePages;
+    private final double degradeFactor;
+
+    public WebDriverPool(ChromeDriverFactory factory, BrowserProfiles profiles, int maxTotal, Duration borrowTimeout,
+                         Duration idleTimeout, int recyclePages, double degradeFactor) {
+        this.profiles = profiles;
+        this.recyclePages = recyclePages;
+        this.degradeFactor = degradeFactor;
+        GenericObjectPoolConfig<WebDriver> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        config.setMinIdle(0);
+        config.setBlockWhenExhausted(true);
+        config.setMaxWait(borrowTimeout);
+        config.setTestOnBorrow(true);
+        config.setTestWhileIdle(true);
+        config.setTimeBetweenEvictionRuns(Duration.ofMinutes(1));
+        config.setMinEvictableIdleDuration(idleTimeout);
+        config.setJmxEnabled(false);
+        this.pool = new GenericObjectPool<>(factory, config);
+    }
+
+    public PooledWebDriver borrow() {
+        return borrow(BrowserProfile.FULL);
+    }
+
+    public PooledWebDriver borrow(BrowserProfile profile) {
+        WebDriver driver;
+        try {
+            driver = pool.borrowObject();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to borrow Chrome session from pool", e);
+        }
+        profiles.apply(driver, profile);
+        return new PooledWebDriver(driver, profile);
+    }
+
+    public BrowserSession openSession(BrowserProfile profile) {
+        return new BrowserSession(this, profiles, profiles.forSession(profile), recyclePages, degradeFactor);
+    }
+
+    public int getActive() {
+        return pool.getNumActive();
+    }
+
+    public int getIdle() {
+        return pool.getNumIdle();
+    }
+
+    @Override
+    public void close() {
+        logger.info("Closing WebDriver pool ({} active, {} idle).", pool.getNumActive(), pool.getNumIdle());
+        pool.close();
+    }
+
+    public class PooledWebDriver implements AutoCloseable {
+        private final WebDriver driver;
+        private final BrowserProfile profile;
+        private boolean invalid;
+        private boolean released;
+
+        private PooledWebDriver(WebDriver driver, BrowserProfile profile) {
+            this.driver = driver;
+            this.profile = profile;
+        }
+
+        public WebDriver driver() {
+            return driver;
+        }
+
+        /**
+         * Помечает сессию как неисправную: при закрытии она будет уничтожена.
+         */
+        public void invalidate() {
+            this.invalid = true;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                if (invalid) {
+                    pool.invalidateObject(driver);
+                } else {
+                    profiles.reset(driver, profile);
+                    pool.returnObject(driver);
+                }
+            } catch (Exception e) {
+                logger.warn("Error releasing Chrome session: {}", e.getMessage());
+            }
+        }
+    }
+}
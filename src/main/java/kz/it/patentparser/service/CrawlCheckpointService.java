@@ -0,0 +1,50 @@
+package kz.it.patentparser.service;
+
+import jakarta.transaction.Transactional;
+import kz.it.patentparser.enums.NavigationDirection;
+import kz.it.patentparser.model.CrawlCheckpoint;
+import kz.it.patentparser.repository.CrawlCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+public class CrawlCheckpointService {
+    private static final Logger logger = LoggerFactory.getLogger(CrawlCheckpointService.class);
+
+    private final CrawlCheckpointRepository checkpointRepository;
+
+    public CrawlCheckpointService(CrawlCheckpointRepository checkpointRepository) {
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    public Optional<CrawlCheckpoint> find(String category, NavigationDirection direction) {
+        return checkpointRepository.findByCategoryAndDirection(category, direction.name());
+    }
+
+    public synchronized void save(String category, NavigationDirection direction, int page, String lastDocNumber) {
+        try {
+            CrawlCheckpoint checkpoint = checkpointRepository.findByCategoryAndDirection(category, direction.name())
+                    .orElseGet(() -> new CrawlCheckpoint(null, category, direction.name(), 0, null, null));
+            checkpoint.setLastCompletedPage(page);
+            checkpoint.setLastDocNumber(lastDocNumber);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+            logger.debug("Checkpoint {} {}: page {} committed", category, direction, page);
+        } catch (Exception e) {
+            logger.error("Error saving checkpoint {} {}: {}", category, direction, e.getMessage());
+        }
+    }
+
+    /**
+     * Обход дошёл до конца - следующий запуск начнёт с первой страницы.
+     */
+    @Transactional
+    public synchronized void clear(String category, NavigationDirection direction) {
+        checkpointRepository.deleteByCategoryAndDirection(category, direction.name());
+        logger.info("Checkpoint {} {} cleared after a complete pass", category, direction);
+    }
+}
@@ -0,0 +1,51 @@
+package kz.it.patentparser.service;
+
+import kz.it.patentparser.model.CrawlWatermark;
+import kz.it.patentparser.repository.CrawlWatermarkRepository;
+import kz.it.patentparser.repository.DocNumberRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+public class CrawlWatermarkService {
+    private static final Logger logger = LoggerFactory.getLogger(CrawlWatermarkService.class);
+
+    private final CrawlWatermarkRepository watermarkRepository;
+    private final DocNumberRepository docNumberRepository;
+
+    public CrawlWatermarkService(CrawlWatermarkRepository watermarkRepository, DocNumberRepository docNumberRepository) {
+        this.watermarkRepository = watermarkRepository;
+        this.docNumberRepository = docNumberRepository;
+    }
+
+    /**
+     * Водяная отметка категории. Пока инкрементальный обход ни разу не завершался,
+     * берётся максимальный docNumber, уже записанный в doc_numbers; 0 - если категория пуста.
+     */
+    public long getWatermark(String category) {
+        return watermarkRepository.findById(category)
+                .map(CrawlWatermark::getHighestDocNumber)
+                .orElseGet(() -> {
+                    Long max = docNumberRepository.findMaxDocumentNumber(category);
+                    return max != null ? max : 0L;
+                });
+    }
+
+    /**
+     * Сдвигает отметку только вперёд.
+     */
+    public synchronized void advance(String category, long highestDocNumber) {
+        CrawlWatermark watermark = watermarkRepository.findById(category)
+                .orElseGet(() -> new CrawlWatermark(category, 0L, null));
+        if (watermark.getHighestDocNumber() != null && watermark.getHighestDocNumber() >= highestDocNumber) {
+            return;
+        }
+        watermark.setHighestDocNumber(highestDocNumber);
+        watermark.setUpdatedAt(LocalDateTime.now());
+        watermarkRepository.save(watermark);
+        logger.info("Watermark for {} advanced to {}", category, highestDocNumber);
+    }
+}
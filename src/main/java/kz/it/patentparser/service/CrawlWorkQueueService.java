@@ -0,0 +1,127 @@
+package kz.it.patentparser.service;
+
+import jakarta.transaction.Transactional;
+import kz.it.patentparser.enums.CrawlUnitKind;
+import kz.it.patentparser.model.CrawlWorkUnit;
+import kz.it.patentparser.repository.CrawlWorkUnitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Общая для всех узлов очередь обхода в PostgreSQL. Узел ставит план единицами (enqueue - идемпотентно по runKey),
+ * забирает их по одной (claim), продлевает аренду, пока работает (renew), и закрывает (complete/fail).
+ * Единицы узла, переставшего продлевать аренду, через lease-seconds забирают другие узлы.
+ */
+@Service
+public class CrawlWorkQueueService {
+    private static final Logger logger = LoggerFactory.getLogger(CrawlWorkQueueService.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final CrawlWorkUnitRepository repository;
+    private final String nodeId;
+
+    @Value("${crawl.queue.lease-seconds:120}")
+    private long leaseSeconds;
+    @Value("${crawl.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    public CrawlWorkQueueService(CrawlWorkUnitRepository repository, @Value("${crawl.queue.node-id:}") String nodeId) {
+        this.repository = repository;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    private static String defaultNodeId() {
+        String host = System.getenv("HOSTNAME");
+        return (host == null || host.isBlank() ? "node" : host) + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Ставит единицу, если её ещё нет в запуске runKey; true - единица добавлена этим вызовом.
+     */
+    @Transactional
+    public boolean enqueue(String runKey, CrawlUnitKind kind, String category, long rangeFrom, long rangeTo) {
+        return repository.insertIfAbsent(runKey, kind.name(), category, rangeFrom, rangeTo) > 0;
+    }
+
+    /**
+     * Забирает следующую свободную единицу под аренду этого узла. Единицы, исчерпавшие max-attempts
+     * (узел умирал на них), помечаются FAILED и пропускаются.
+     */
+    @Transactional
+    public Optional<CrawlWorkUnit> claim() {
+        while (true) {
+            Optional<CrawlWorkUnit> next = repository.lockNextClaimable();
+            if (next.isEmpty()) {
+                return Optional.empty();
+            }
+            CrawlWorkUnit unit = next.get();
+            if (unit.getAttempts() >= maxAttempts) {
+                repository.markFailed(unit.getId());
+                logger.error("Crawl unit {} {} {} failed after {} attempts (last owner {})",
+                        unit.getId(), unit.getKind(), unit.getCategory(), unit.getAttempts(), unit.getOwner());
+                continue;
+            }
+            if (unit.getOwner() != null) {
+                logger.warn("Reclaiming crawl unit {} from {}: lease expired", unit.getId(), unit.getOwner());
+            }
+            repository.claim(unit.getId(), nodeId, leaseSeconds);
+            unit.setAttempts(unit.getAttempts() + 1);
+            unit.setOwner(nodeId);
+            return Optional.of(unit);
+        }
+    }
+
+    /**
+     * Продлевает аренду; false - единица уже не принадлежит узлу (аренда истекла и её забрали).
+     */
+    @Transactional
+    public boolean renew(long unitId) {
+        return repository.renewLease(unitId, nodeId, leaseSeconds) > 0;
+    }
+
+    @Transactional
+    public void complete(long unitId) {
+        if (repository.complete(unitId, nodeId) == 0) {
+            logger.warn("Crawl unit {} finished, but its lease had already passed to another node", unitId);
+        }
+    }
+
+    @Transactional
+    public void fail(long unitId, Throwable error) {
+        String message = String.valueOf(error);
+        repository.fail(unitId, nodeId, message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message, maxAttempts);
+    }
+
+    @Transactional
+    public void release(long unitId) {
+        repository.release(unitId, nodeId);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("node", nodeId);
+        Map<String, Long> statuses = new TreeMap<>();
+        for (Object[] row : repository.countByStatus()) {
+            statuses.put(String.valueOf(row[0]), ((Number) row[1]).longValue());
+        }
+        values.put("units", statuses);
+        Map<String, Long> owners = new TreeMap<>();
+        for (Object[] row : repository.countActiveByOwner()) {
+            owners.put(String.valueOf(row[0]), ((Number) row[1]).longValue());
+        }
+        values.put("activeByNode", owners);
+        return values;
+    }
+}
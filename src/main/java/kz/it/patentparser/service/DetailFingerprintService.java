@@ -0,0 +1,136 @@
+package kz.it.patentparser.service;
+
+import kz.it.patentparser.model.DetailPageFingerprint;
+import kz.it.patentparser.repository.DetailPageFingerprintRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Определяет, изменилась ли детальная страница с прошлого разбора, без построения DOM.
+ * Хешируется только блок полей div.detial_plan_info: остальная разметка (меню, скрипты, токены) меняется
+ * от запроса к запросу и дала бы ложные изменения. ETag и Last-Modified, если сервер их отдаёт,
+ * уходят в условный GET, и ответ 304 не требует даже загрузки тела.
+ * <p>
+ * Для браузерного обхода хранится ещё хеш нормализованного текста карточки списка: совпавший хеш
+ * означает, что карточку можно пропустить, не загружая детальную страницу.
+ */
+@Service
+public class DetailFingerprintService {
+    private static final Logger logger = LoggerFactory.getLogger(DetailFingerprintService.class);
+    private static final String DETAILS_MARKER = "detial_plan_info";
+    private static final String DETAILS_END = "</ul>";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final DetailPageFingerprintRepository fingerprintRepository;
+
+    @Value("${gosreestr.fingerprint.enabled:true}")
+    private boolean enabled;
+
+    public DetailFingerprintService(DetailPageFingerprintRepository fingerprintRepository) {
+        this.fingerprintRepository = fingerprintRepository;
+    }
+
+    /**
+     * Сохранённая версия страницы; пусто, если страница ещё не разбиралась или сравнение выключено.
+     */
+    public Optional<DetailPageFingerprint> find(String category, String docNumber) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return fingerprintRepository.findByCategoryAndDocNumber(category, docNumber);
+    }
+
+    public PageVersion versionOf(String body, String etag, String lastModified) {
+        return new PageVersion(contentHash(body), etag, lastModified);
+    }
+
+    public boolean isUnchanged(Optional<DetailPageFingerprint> known, PageVersion version) {
+        return known.isPresent() && Objects.equals(known.get().getContentHash(), version.contentHash());
+    }
+
+    /**
+     * Хеш текста карточки без учёта пробелов и переводов строк (браузер и callback отдают их по-разному).
+     */
+    public String cardHash(String cardText) {
+        return sha256(WHITESPACE.matcher(cardText).replaceAll(" ").trim());
+    }
+
+    public boolean isCardUnchanged(Optional<DetailPageFingerprint> known, String cardHash) {
+        return known.isPresent() && Objects.equals(known.get().getCardHash(), cardHash);
+    }
+
+    /**
+     * Запоминает версию разобранной страницы. Вызывается после записи патента,
+     * чтобы неудачная запись не пометила страницу как уже обработанную.
+     */
+    public void record(String category, String docNumber, PageVersion version) {
+        record(category, docNumber, version, null);
+    }
+
+    /**
+     * То же с хешем карточки, по которой загружалась страница; null оставляет сохранённый хеш карточки.
+     */
+    public void record(String category, String docNumber, PageVersion version, String cardHash) {
+        save(category, docNumber, fingerprint -> {
+            fingerprint.setContentHash(version.contentHash());
+            fingerprint.setEtag(version.etag());
+            fingerprint.setLastModified(version.lastModified());
+            if (cardHash != null) {
+                fingerprint.setCardHash(cardHash);
+            }
+        });
+    }
+
+    /**
+     * Запоминает только хеш карточки - когда детальная страница не загружалась или не изменилась.
+     */
+    public void recordCard(String category, String docNumber, String cardHash) {
+        save(category, docNumber, fingerprint -> fingerprint.setCardHash(cardHash));
+    }
+
+    private void save(String category, String docNumber, Consumer<DetailPageFingerprint> update) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            DetailPageFingerprint fingerprint = fingerprintRepository.findByCategoryAndDocNumber(category, docNumber)
+                    .orElseGet(() -> new DetailPageFingerprint(null, category, docNumber, null, null, null, null, null));
+            update.accept(fingerprint);
+            fingerprint.setCheckedAt(LocalDateTime.now());
+            fingerprintRepository.save(fingerprint);
+        } catch (Exception e) {
+            logger.error("Error saving fingerprint of {} docNumber {}: {}", category, docNumber, e.getMessage());
+        }
+    }
+
+    static String contentHash(String body) {
+        int start = body.indexOf(DETAILS_MARKER);
+        int end = start < 0 ? -1 : body.indexOf(DETAILS_END, start);
+        String content = start < 0 || end < 0 ? body : body.substring(start, end);
+        return sha256(content);
+    }
+
+    private static String sha256(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record PageVersion(String contentHash, String etag, String lastModified) {
+    }
+}
@@ -0,0 +1,354 @@
+package kz.it.patentparser.service;
+
+import jakarta.annotation.PreDestroy;
+import kz.it.patentparser.enums.PatentCategory;
+import kz.it.patentparser.http.AdaptiveConcurrencyLimiter;
+import kz.it.patentparser.http.AdaptiveConcurrencyLimiter.Permit;
+import kz.it.patentparser.http.CircuitBreaker;
+import kz.it.patentparser.http.CircuitBreaker.Call;
+import kz.it.patentparser.http.CircuitBreakers;
+import kz.it.patentparser.http.HostRateLimiters;
+import kz.it.patentparser.http.RequestHedging;
+import kz.it.patentparser.model.DetailPageFingerprint;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.BoundRequestBuilder;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.asynchttpclient.Dsl.asyncHttpClient;
+import static org.asynchttpclient.Dsl.config;
+
+/**
+ * Асинхронная загрузка страниц Details?docNumber=N с gosreestr.kazpatent.kz.
+ * Число одновременных запросов задаёт адаптивный лимитер хоста, общий для всех вызывающих.
+ * GET-запросы, повисшие дольше наблюдаемого p95 хоста, дублируются (RequestHedging): берётся первый ответ,
+ * второй запрос отменяется, а его разрешение лимитера возвращается без изменения лимита.
+ * Перед лимитером запрос проходит предохранитель своего эндпоинта: пока сайт лежит, вызывающие потоки паркуются.
+ */
+@Service
+public class GosReestrDetailClient {
+    private static final Logger logger = LoggerFactory.getLogger(GosReestrDetailClient.class);
+    public static final String BASE_URL = "https://gosreestr.kazpatent.kz";
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64)";
+
+    private final AsyncHttpClient client;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final RequestHedging hedging;
+    private final CircuitBreakers breakers;
+
+    public GosReestrDetailClient(HostRateLimiters rateLimiters, RequestHedging hedging, CircuitBreakers breakers,
+                                 @Value("${gosreestr.http.max-concurrency:16}") int maxConcurrency,
+                                 @Value("${gosreestr.http.timeout-ms:30000}") long timeoutMs) {
+        this.client = asyncHttpClient(config()
+                .setMaxConnections(maxConcurrency * 2)
+                .setMaxConnectionsPerHost(maxConcurrency)
+                .setConnectTimeout(Duration.ofMillis(timeoutMs))
+                .setRequestTimeout(Duration.ofMillis(timeoutMs))
+                .setFollowRedirect(true)
+                .setUserAgent(USER_AGENT));
+        this.limiter = rateLimiters.forUrl(BASE_URL);
+        this.hedging = hedging;
+        this.breakers = breakers;
+    }
+
+    public static String detailsUrl(PatentCategory category, String docNumber) {
+        return BASE_URL + "/" + category.getReestrType() + "/Details?docNumber=" + docNumber;
+    }
+
+    /**
+     * Блокирует вызывающий поток, пока предохранитель и лимитер не выдадут разрешение, поэтому быстрый производитель
+     * номеров не может поставить в очередь больше запросов, чем сейчас выдерживает сайт.
+     */
+    public CompletableFuture<Response> fetch(String url) throws InterruptedException {
+        return executeHedged(client.prepareGet(url).build(), true);
+    }
+
+    /**
+     * Условный GET по сохранённой версии страницы: если сервер поддерживает валидаторы и страница не менялась,
+     * он отвечает 304 без тела. Номер перебирается вслепую, поэтому 500 (так сайт отвечает на несуществующие номера)
+     * предохранителю не сообщается.
+     */
+    public CompletableFuture<Response> fetch(String url, Optional<DetailPageFingerprint> known) throws InterruptedException {
+        return executeHedged(conditionalGet(url, known), true);
+    }
+
+    /**
+     * Условный GET детальной страницы по ссылке из списка категории: номер существует, поэтому 500 - отказ сайта,
+     * и волна таких ответов открывает предохранитель.
+     */
+    public CompletableFuture<Response> fetchListed(String url, Optional<DetailPageFingerprint> known) throws InterruptedException {
+        return executeHedged(conditionalGet(url, known), false);
+    }
+
+    /**
+     * Пропускает ли предохранитель эндпоинта запросы без ограничений (CLOSED).
+     */
+    public boolean isAvailable(String url) {
+        return breakers.forName(CircuitBreakers.endpointOf(URI.create(url))).getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    private Request conditionalGet(String url, Optional<DetailPageFingerprint> known) {
+        BoundRequestBuilder request = client.prepareGet(url);
+        known.ifPresent(fingerprint -> {
+            if (fingerprint.getEtag() != null) {
+                request.setHeader("If-None-Match", fingerprint.getEtag());
+            }
+            if (fingerprint.getLastModified() != null) {
+                request.setHeader("If-Modified-Since", fingerprint.getLastModified());
+            }
+        });
+        return request.build();
+    }
+
+    /**
+     * POST формы от имени браузерной сессии - используется для повтора callback-запросов списка cvReestr.
+     */
+    public CompletableFuture<Response> postForm(String url, String body, String cookieHeader) throws InterruptedException {
+        return execute(client.preparePost(url)
+                .setHeader("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+                .setHeader("X-Requested-With", "XMLHttpRequest")
+                .setHeader("Referer", BASE_URL + "/")
+                .setHeader("Cookie", cookieHeader)
+                .setBody(body));
+    }
+
+    private CompletableFuture<Response> execute(BoundRequestBuilder builder) throws InterruptedException {
+        Request request = builder.build();
+        Call call = breakerFor(request).acquire();
+        Permit permit;
+        try {
+            permit = limiter.acquire();
+        } catch (InterruptedException | RuntimeException e) {
+            call.ignore();
+            throw e;
+        }
+        try {
+            return client.executeRequest(request)
+                    .toCompletableFuture()
+                    .whenComplete((response, error) -> {
+                        if (response != null) {
+                            permit.onResponse(response.getStatusCode(), response.getHeader("Retry-After"));
+                        } else {
+                            permit.onError();
+                        }
+                        report(call, response, false);
+                    });
+        } catch (RuntimeException e) {
+            permit.cancel();
+            call.ignore();
+            throw e;
+        }
+    }
+
+    private CircuitBreaker breakerFor(Request request) {
+        return breakers.forName(CircuitBreakers.endpointOf(URI.create(request.getUrl())));
+    }
+
+    /**
+     * Отказ для предохранителя - ошибка или таймаут, 429 и 5xx. Исключение - 500 на номере, перебираемом вслепую:
+     * это может быть и пропуск в нумерации, поэтому исход в окно не пишется (ignore) - обход хвоста не открывает
+     * предохранитель, но и не разбавляет успехами отказы запросов, которые 500 получать не должны.
+     */
+    private static void report(Call call, Response response, boolean probe) {
+        if (response == null) {
+            call.failure();
+            return;
+        }
+        int status = response.getStatusCode();
+        if (probe && status == 500) {
+            call.ignore();
+        } else if (status >= 500 || status == 429) {
+            call.failure();
+        } else {
+            call.success();
+        }
+    }
+
+    /**
+     * Как execute, но если ответа нет дольше порога хоста и бюджет позволяет, отправляет дубль запроса.
+     */
+    private CompletableFuture<Response> executeHedged(Request request, boolean probe) throws InterruptedException {
+        Call call = breakerFor(request).acquire();
+        HedgedFetch fetch = new HedgedFetch(request);
+        try {
+            fetch.start(limiter.acquire(), false);
+        } catch (InterruptedException | RuntimeException e) {
+            call.ignore();
+            throw e;
+        }
+        long delayNanos = hedging.hedgeDelayNanos(limiter.getHost());
+        if (delayNanos > 0) {
+            fetch.scheduleHedge(delayNanos);
+        }
+        return fetch.result.whenComplete((response, error) -> report(call, response, probe));
+    }
+
+    /**
+     * Исходный запрос и, возможно, его дубль. Первый полученный ответ (любой статус) завершает result,
+     * оставшийся запрос отменяется. Ошибка завершает result, только если других запросов в полёте нет.
+     */
+    private final class HedgedFetch {
+        private final Request request;
+        private final CompletableFuture<Response> result = new CompletableFuture<>();
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private int running;
+        private ScheduledFuture<?> timer;
+        private CompletableFuture<Permit> hedgePermit;
+
+        HedgedFetch(Request request) {
+            this.request = request;
+        }
+
+        void start(Permit permit, boolean hedge) {
+            ListenableFuture<Response> future;
+            try {
+                future = client.executeRequest(request);
+            } catch (RuntimeException e) {
+                permit.cancel();
+                if (!hedge) {
+                    throw e;
+                }
+                hedging.hedgeFinished(limiter.getHost(), false);
+                return;
+            }
+            Attempt attempt = new Attempt(future, permit, System.nanoTime(), hedge);
+            synchronized (this) {
+                running++;
+                if (result.isDone()) {
+                    attempt.lost = true;
+                } else {
+                    attempts.add(attempt);
+                }
+            }
+            if (attempt.lost) {
+                future.cancel(true);
+            }
+            future.toCompletableFuture().whenComplete((response, error) -> complete(attempt, response, error));
+        }
+
+        synchronized void scheduleHedge(long delayNanos) {
+            if (!result.isDone()) {
+                timer = hedging.schedule(this::hedge, delayNanos);
+            }
+        }
+
+        private void hedge() {
+            CompletableFuture<Permit> waiter;
+            synchronized (this) {
+                if (result.isDone() || !hedging.tryStartHedge(limiter.getHost())) {
+                    return;
+                }
+                waiter = limiter.acquireAsync();
+                hedgePermit = waiter;
+            }
+            logger.debug("No response within p95 from {}, sending hedged request", request.getUrl());
+            waiter.whenComplete((permit, error) -> {
+                if (permit == null) {
+                    // Ожидание разрешения отменено: исходный запрос ответил раньше
+                    hedging.hedgeFinished(limiter.getHost(), false);
+                } else if (result.isDone()) {
+                    permit.cancel();
+                    hedging.hedgeFinished(limiter.getHost(), false);
+                } else {
+                    start(permit, true);
+                }
+            });
+        }
+
+        private void complete(Attempt attempt, Response response, Throwable error) {
+            boolean won = false;
+            boolean failed = false;
+            List<Attempt> losers = new ArrayList<>();
+            CompletableFuture<Permit> pendingHedge = null;
+            ScheduledFuture<?> pendingTimer = null;
+            synchronized (this) {
+                running--;
+                if (!attempt.lost && response != null && !result.isDone()) {
+                    won = true;
+                    for (Attempt other : attempts) {
+                        if (other != attempt && !other.future.isDone()) {
+                            other.lost = true;
+                            losers.add(other);
+                        }
+                    }
+                    pendingHedge = hedgePermit;
+                    pendingTimer = timer;
+                } else if (!attempt.lost && response == null && running == 0 && !result.isDone()) {
+                    failed = true;
+                }
+            }
+
+            long elapsed = System.nanoTime() - attempt.startNanos;
+            if (attempt.lost) {
+                // Отменённый проигравший: лимит не меняется, время до отмены - нижняя оценка задержки
+                attempt.permit.cancel();
+                hedging.recordLatency(limiter.getHost(), elapsed);
+            } else if (response != null) {
+                attempt.permit.onResponse(response.getStatusCode(), response.getHeader("Retry-After"));
+                if (response.getStatusCode() < 500 && response.getStatusCode() != 429) {
+                    hedging.recordLatency(limiter.getHost(), elapsed);
+                }
+            } else {
+                attempt.permit.onError();
+            }
+            if (attempt.hedge) {
+                hedging.hedgeFinished(limiter.getHost(), won);
+            }
+
+            if (won) {
+                result.complete(response);
+                if (pendingTimer != null) {
+                    pendingTimer.cancel(false);
+                }
+                if (pendingHedge != null) {
+                    pendingHedge.cancel(false);
+                }
+                losers.forEach(loser -> loser.future.cancel(true));
+            } else if (failed) {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+
+    private static final class Attempt {
+        final ListenableFuture<Response> future;
+        final Permit permit;
+        final long startNanos;
+        final boolean hedge;
+        volatile boolean lost;
+
+        Attempt(ListenableFuture<Response> future, Permit permit, long startNanos, boolean hedge) {
+            this.future = future;
+            this.permit = permit;
+            this.startNanos = startNanos;
+            this.hedge = hedge;
+        }
+    }
+
+    public CompletableFuture<Response> fetch(PatentCategory category, String docNumber) throws InterruptedException {
+        return fetch(detailsUrl(category, docNumber));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            logger.error("Error closing gosreestr http client", e);
+        }
+    }
+}
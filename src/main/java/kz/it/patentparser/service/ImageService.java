@@ -1,5 +1,7 @@
 package kz.it.patentparser.service;
 
+import kz.it.patentparser.http.AdaptiveConcurrencyLimiter.Permit;
+import kz.it.patentparser.http.HostRateLimiters;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import java.io.ByteArrayOutputStream;
@@ -12,16 +14,24 @@ import java.util.Base64;
 public class ImageService {
 
     private final RestTemplate restTemplate = new RestTemplate();
+    private final HostRateLimiters rateLimiters;
+
+    public ImageService(HostRateLimiters rateLimiters) {
+        this.rateLimiters = rateLimiters;
+    }
 
     public String downloadAndConvertToBase64(String imageUrl) {
+        Permit permit = null;
         try {
             URL url = new URL(imageUrl);
+            permit = rateLimiters.forUrl(imageUrl).acquire();
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             connection.setRequestMethod("GET");
             connection.setRequestProperty("User-Agent", "Mozilla/5.0");
             connection.setRequestProperty("Referer", "https://gosreestr.kazpatent.kz/");
             connection.setConnectTimeout(10000);
             connection.setReadTimeout(10000);
+            permit.onResponse(connection.getResponseCode(), connection.getHeaderField("Retry-After"));
 
             try (InputStream inputStream = connection.getInputStream();
                  ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
@@ -36,6 +46,12 @@ public class ImageService {
                 return Base64.getEncoder().encodeToString(imageBytes);
             }
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (permit != null) {
+                permit.onError();
+            }
             System.err.println("Ошибка загрузки изображения: " + e.getMessage());
             return null;
         }
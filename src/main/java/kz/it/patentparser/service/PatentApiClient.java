@@ -3,10 +3,14 @@ package kz.it.patentparser.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.it.patentparser.archive.RawResponseArchive;
 import kz.it.patentparser.dto.PatentDto;
+import kz.it.patentparser.http.CircuitBreakers;
+import kz.it.patentparser.http.HostRateLimiters;
 import kz.it.patentparser.parser.EbulletinPatentParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -21,10 +25,19 @@ public class PatentApiClient {
     private static final String BASE_URL = "https://ebulletin.kazpatent.kz:6002";
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final RawResponseArchive archive;
 
-    public PatentApiClient(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-        this.webClient = webClientBuilder.baseUrl(BASE_URL).build();
+    // Картинки товарных знаков одной страницы бюллетеня запрашиваются не больше чем по image-concurrency сразу
+    @Value("${ebulletin.pipeline.image-concurrency:4}")
+    private int imageConcurrency;
+
+    public PatentApiClient(WebClient.Builder webClientBuilder, ObjectMapper objectMapper, HostRateLimiters rateLimiters, CircuitBreakers breakers, RawResponseArchive archive) {
+        this.webClient = webClientBuilder.baseUrl(BASE_URL)
+                .filter(breakers.webClientFilter())
+                .filter(rateLimiters.webClientFilter())
+                .build();
         this.objectMapper = objectMapper;
+        this.archive = archive;
     }
 
     public Mono<String> fetchImageBase64(String patentId, String endpoint) {
@@ -60,6 +73,7 @@ public class PatentApiClient {
                 .uri("/bulletin/published/{endpoint}/{page}/{date}", endpoint, page, date)
                 .retrieve()
                 .bodyToMono(String.class)
+                .doOnNext(json -> archive.store(RawResponseArchive.EBULLETIN, endpoint, date + "/" + page, json))
                 .flatMapMany(json -> {
                     List<PatentDto> patents = decodeUnicode(json);
                     return Flux.fromIterable(patents);
@@ -71,7 +85,7 @@ public class PatentApiClient {
                     } else {
                         return Mono.just(dto); // Simply return the dto without modifying it
                     }
-                })
+                }, imageConcurrency)
                 .doOnError(error -> logger.error("Error fetching patents for {} on {}: {}", endpoint, date, error.getMessage()));
     }
 
@@ -91,6 +105,7 @@ public class PatentApiClient {
                         .build())
                 .retrieve()
                 .bodyToMono(String.class)
+                .doOnNext(json -> archive.store(RawResponseArchive.EBULLETIN, "select_bull_list_published", String.valueOf(year), json))
                 .map(json -> {
                     try {
                         // Deserialize JSON into a regular Map
@@ -113,6 +128,13 @@ public class PatentApiClient {
 
 
 
+    /**
+     * Разбор JSON страницы бюллетеня - тот же, что при загрузке, для повторного разбора архива.
+     */
+    public List<PatentDto> decodePatents(String json) {
+        return decodeUnicode(json);
+    }
+
     private List<PatentDto> decodeUnicode(String json) {
         try {
             return objectMapper.readValue(json, new TypeReference<List<PatentDto>>() {});
@@ -0,0 +1,192 @@
+package kz.it.patentparser.service;
+
+import kz.it.patentparser.model.Patent;
+import kz.it.patentparser.model.PatentAdditionalField;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Последняя стадия конвейера: копит распарсенные патенты и сохраняет их пачками
+ * в отдельном потоке, чтобы загрузка и разбор страниц не ждали базу.
+ * Очередь ограничена - если база не успевает, submit() притормаживает производителей.
+ */
+public class PatentBatchWriter implements AutoCloseable {
+    private static final Patent POISON = new Patent();
+
+    private final PatentService patentService;
+    private final Logger logger;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<Patent> queue;
+    private final Thread worker;
+    private volatile int saved;
+    private final AtomicLong submitted = new AtomicLong();
+    private long flushed;
+    private boolean failed;
+    private final List<PendingCallback> callbacks = new ArrayList<>();
+    private final ReentrantLock callbackRunner = new ReentrantLock();
+
+    public PatentBatchWriter(PatentService patentService, Logger logger, int batchSize, long flushIntervalMs) {
+        this.patentService = patentService;
+        this.logger = logger;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(batchSize * 4);
+        this.worker = new Thread(this::run, "patent-batch-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Счётчик растёт до постановки в очередь: порог callback'а, зарегистрированного после submit(),
+     * покрывает этот патент, даже если параллельный производитель ещё не успел положить свой.
+     * Завышенный счётчик только откладывает callback, заниженный выполнил бы его до записи патента.
+     */
+    public void submit(Patent patent) throws InterruptedException {
+        submitted.incrementAndGet();
+        queue.put(patent);
+    }
+
+    /**
+     * Выполняет callback, когда все патенты, переданные в submit() до этого вызова, записаны в базу.
+     * Если записывать нечего, callback выполняется сразу в вызывающем потоке.
+     * Callback'и выполняются по одному и в порядке регистрации, вне блокировки регистрации.
+     * После первой неудачной пачки callback'и больше не выполняются: чекпоинты и отпечатки
+     * не должны говорить о записи, которой не было.
+     */
+    public void afterCommit(Runnable callback) {
+        long threshold = submitted.get();
+        synchronized (callbacks) {
+            if (failed) {
+                logger.debug("Batch writer has failed, after-commit callback dropped");
+                return;
+            }
+            callbacks.add(new PendingCallback(threshold, callback));
+        }
+        runCallbacks();
+    }
+
+    public int getSaved() {
+        return saved;
+    }
+
+    /**
+     * Была ли неудачная пачка: после неё обход не должен считаться завершённым.
+     */
+    public boolean isFailed() {
+        synchronized (callbacks) {
+            return failed;
+        }
+    }
+
+    private void run() {
+        List<Patent> batch = new ArrayList<>(batchSize);
+        boolean finished = false;
+        while (!finished) {
+            try {
+                Patent patent = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (patent == POISON) {
+                    finished = true;
+                } else if (patent != null) {
+                    batch.add(patent);
+                    queue.drainTo(batch, batchSize - batch.size());
+                    finished = batch.remove(POISON);
+                    if (batch.size() < batchSize && !finished) {
+                        continue;
+                    }
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                return;
+            }
+        }
+        committed(Long.MAX_VALUE);
+    }
+
+    private void flush(List<Patent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            patentService.savePatents(batch, logger);
+
+            List<PatentAdditionalField> additionalFields = batch.stream()
+                    .filter(patent -> patent.getAdditionalFields() != null)
+                    .flatMap(patent -> patent.getAdditionalFields().stream())
+                    .toList();
+            if (!additionalFields.isEmpty()) {
+                patentService.saveAllAdditionalFields(additionalFields);
+            }
+            saved += batch.size();
+            logger.info("Saved batch of {} patents ({} additional fields), {} in total.", batch.size(), additionalFields.size(), saved);
+            committed(batch.size());
+        } catch (Exception e) {
+            logger.error("Error saving batch of {} patents", batch.size(), e);
+            synchronized (callbacks) {
+                failed = true;
+                logger.warn("Dropping {} after-commit callbacks, checkpoints stop at the last saved batch", callbacks.size());
+                callbacks.clear();
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void committed(long count) {
+        synchronized (callbacks) {
+            flushed = count == Long.MAX_VALUE ? Long.MAX_VALUE : flushed + count;
+        }
+        runCallbacks();
+    }
+
+    /**
+     * Выполняет готовые callback'и по порядку. Список блокируется только на время выбора очередного
+     * callback'а, чтобы запись в базу из callback'а не задерживала регистрацию новых из потоков обхода.
+     */
+    private void runCallbacks() {
+        callbackRunner.lock();
+        try {
+            while (true) {
+                Runnable callback;
+                synchronized (callbacks) {
+                    if (failed || callbacks.isEmpty() || callbacks.get(0).threshold() > flushed) {
+                        return;
+                    }
+                    callback = callbacks.remove(0).callback();
+                }
+                runCallback(callback);
+            }
+        } finally {
+            callbackRunner.unlock();
+        }
+    }
+
+    private void runCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            logger.error("Error running after-commit callback", e);
+        }
+    }
+
+    private record PendingCallback(long threshold, Runnable callback) {
+    }
+
+    /**
+     * Дописывает всё, что осталось в очереди, и дожидается окончания записи.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        queue.put(POISON);
+        worker.join();
+    }
+}
@@ -1,13 +1,14 @@
 package kz.it.patentparser.service;
 
+import kz.it.patentparser.archive.RawResponseArchive;
+import kz.it.patentparser.enums.PatentCategory;
 import kz.it.patentparser.model.DocNumber;
 import kz.it.patentparser.model.Patent;
 import kz.it.patentparser.model.PatentAdditionalField;
+import kz.it.patentparser.parser.GosReestrDetailParser;
 import kz.it.patentparser.repository.DocNumberRepository;
 import kz.it.patentparser.util.ImageScraper;
-import org.jsoup.HttpStatusException;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.asynchttpclient.Response;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
@@ -15,14 +16,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,11 +33,19 @@ public class PatentRetryService {
     private final PatentStorageService patentStorageService;
     private final PatentService patentService;
     private final DocNumberRepository failedPatentRepository;
+    private final GosReestrDetailParser detailParser;
+    private final ImageScraper imageScraper;
+    private final GosReestrDetailClient detailClient;
+    private final RawResponseArchive archive;
 
-    public PatentRetryService(PatentStorageService patentStorageService, DocNumberRepository failedPatentRepository, PatentService patentService) {
+    public PatentRetryService(PatentStorageService patentStorageService, DocNumberRepository failedPatentRepository, PatentService patentService, GosReestrDetailParser detailParser, ImageScraper imageScraper, GosReestrDetailClient detailClient, RawResponseArchive archive) {
         this.patentStorageService = patentStorageService;
         this.failedPatentRepository = failedPatentRepository;
         this.patentService = patentService;
+        this.detailParser = detailParser;
+        this.imageScraper = imageScraper;
+        this.detailClient = detailClient;
+        this.archive = archive;
     }
 
 //    @Scheduled(fixedRate = 86400000) // Run once per day
@@ -95,7 +105,7 @@ public void fetchMissingImages(String order) {
     private void processPatentImage(DocNumber patent) {
         String url = generatePatentUrl(Integer.parseInt(patent.getDocumentNumber()), patent.getCategory());
         try {
-            String imageBase64 = ImageScraper.captureImageBase64(url, logger);
+            String imageBase64 = imageScraper.captureImageBase64(url, logger);
             if (imageBase64 != null) {
                 Patent patentEntity = patentService.getPatentByDocNumber(patent.getDocumentNumber());
                 patentService.saveAdditionalField(patentEntity.getId(), "imageBase64", imageBase64);
@@ -108,67 +118,45 @@ public void fetchMissingImages(String order) {
         }
     }
 
-    private String getCategory(String category) {
-        switch (category) {
-            case "Товарные знаки":
-                return "Trademark";
-            case "Изобретения":
-                return "Invention";
-            case "Полезные модели":
-                return "UtilityModel";
-            case "Промышленные образцы":
-                return "IndustrialDesign";
-            case "Селекционные достижения":
-                return "SelectionAchievement";
-            default:
-                return "";
-        }
-    }
-
     private String generatePatentUrl(int documentNumber, String category) {
-        return "https://gosreestr.kazpatent.kz/" + getCategory(category) + "/Details?docNumber=" + documentNumber;
+        PatentCategory patentCategory = PatentCategory.fromName(category);
+        if (patentCategory == null) {
+            throw new IllegalArgumentException("Unknown gosreestr category: " + category);
+        }
+        return GosReestrDetailClient.detailsUrl(patentCategory, String.valueOf(documentNumber));
     }
 
+    /**
+     * Загрузка идёт через GosReestrDetailClient: общий лимитер хоста и дубль запроса, если ответ задерживается дольше p95.
+     */
     private Patent fetchPatentDetails(String url, String category) throws InterruptedException {
         int attempts = 3;
         while (attempts > 0) {
             try {
-                Document doc = Jsoup.connect(url)
-                        .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64)")
-                        .timeout(30_000)
-                        .get();
-
-                Patent patent = new Patent();
-                patent.setCategory(category);
-                patent.setPatentSite("gosreestr.kazpatent.kz");
-
-                List<PatentAdditionalField> additionalFields = new ArrayList<>();
-                Elements fields = doc.select("div.detial_plan_info ul li");
-
-                for (Element field : fields) {
-                    String rawLabel = field.select("strong").text().trim();
-                    String value = field.select("span").text().trim();
-                    String label = rawLabel.replaceAll("\\(.*\\)", "").trim();
-                    if (label.isEmpty() || value.isEmpty()) continue;
-                    if (label.equals("Реферат/Описание") || label.equals("Описания")) {
-                        value = field.select("span a").attr("abs:href");
-                    }
-                    additionalFields.add(new PatentAdditionalField(patent, label, value));
-                }
+                Response response = detailClient.fetch(url).get();
 
-                patent.setAdditionalFields(additionalFields);
-                return patent;
+                if (response.getStatusCode() == 500) {
+                    return null;
+                }
+                if (response.getStatusCode() != 200) {
+                    logger.warn("HTTP error {}, retrying...", response.getStatusCode());
+                    attempts--;
+                    continue;
+                }
 
-            } catch (SocketTimeoutException e) {
-                logger.warn("Timeout, retrying...");
-                attempts--;
-                Thread.sleep(3000);
-            } catch (HttpStatusException e) {
-                if (e.getStatusCode() == 500) {
+                String docNumber = url.substring(url.lastIndexOf("=") + 1);
+                String body = response.getResponseBody(StandardCharsets.UTF_8);
+                archive.store(RawResponseArchive.GOSREESTR, category, docNumber, body);
+                return detailParser.parse(body, url, docNumber, category);
+
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    logger.warn("Timeout, retrying...");
+                    attempts--;
+                    Thread.sleep(3000);
+                } else {
                     return null;
                 }
-            } catch (IOException e) {
-                return null;
             }
         }
         return null;
@@ -248,4 +248,147 @@ public class PatentService {
                 patentRepository.findBySecurityDocNumberAndCategoryAndPatentSite(securityDocNumber, category, siteType).isPresent() :
                 patentRepository.findByRegistrationNumberAndCategoryAndPatentSite(registrationNumber, category, siteType).isPresent();
     }
+
+    /**
+     * Обновляет уже сохранённый патент свежими данными страницы: непустые поля перезаписываются,
+     * дополнительные поля сопоставляются по подписи. Поля, которых нет на странице (например, imageBase64), сохраняются.
+     * Сущность управляемая, поэтому UPDATE уходит только если что-то действительно изменилось.
+     * Возвращает false, если такого патента ещё нет.
+     */
+    @Transactional
+    public boolean refreshPatent(Patent fresh) {
+        if (fresh.getSecurityDocNumber() == null && fresh.getRegistrationNumber() == null) return false;
+
+        Optional<Patent> existing = fresh.getSecurityDocNumber() != null ?
+                patentRepository.findBySecurityDocNumberAndCategoryAndPatentSite(fresh.getSecurityDocNumber(), fresh.getCategory(), fresh.getPatentSite()) :
+                patentRepository.findByRegistrationNumberAndCategoryAndPatentSite(fresh.getRegistrationNumber(), fresh.getCategory(), fresh.getPatentSite());
+        if (existing.isEmpty()) return false;
+
+        copyInto(existing.get(), fresh);
+        return true;
+    }
+
+    /**
+     * Точечное обновление сохранённого патента по изменившейся карточке списка, без детальной страницы:
+     * перезаписываются только поля, которые есть в карточке (статус, название, бюллетень, авторы, сорт).
+     * Патент ищется по docNumber страницы госреестра; false - если такого патента нет.
+     */
+    @Transactional
+    public boolean refreshFromCard(String docNumber, Patent card) {
+        Optional<Patent> existing = patentRepository.findByDocNumberAndCategoryAndPatentSite(docNumber, card.getCategory(), card.getPatentSite());
+        if (existing.isEmpty()) return false;
+
+        Patent patent = existing.get();
+        // Подпись карточки без значения на той же строке даёт пустую строку - такие поля не трогаем
+        if (hasText(card.getStatus())) patent.setStatus(card.getStatus());
+        if (hasText(card.getTitle())) patent.setTitle(card.getTitle());
+        if (hasText(card.getBulletinNumber())) patent.setBulletinNumber(card.getBulletinNumber());
+        if (card.getBulletinDate() != null) patent.setBulletinDate(card.getBulletinDate());
+        if (hasText(card.getAuthors())) patent.setAuthors(card.getAuthors());
+        if (hasText(card.getSortName())) patent.setSortName(card.getSortName());
+        return true;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * Пакетная запись результатов повторного разбора: существующие патенты (по номеру охранного документа
+     * или регистрации, категории и сайту) обновляются как в refreshPatent, остальные вставляются.
+     * Существующие записи пакета загружаются двумя запросами IN, а не по одной.
+     */
+    @Transactional
+    public UpsertResult upsertPatents(List<Patent> patents) {
+        Map<String, List<Patent>> existing = new HashMap<>();
+        List<String> securityDocNumbers = patents.stream()
+                .map(Patent::getSecurityDocNumber).filter(Objects::nonNull).distinct().toList();
+        List<String> registrationNumbers = patents.stream()
+                .filter(patent -> patent.getSecurityDocNumber() == null)
+                .map(Patent::getRegistrationNumber).filter(Objects::nonNull).distinct().toList();
+        if (!securityDocNumbers.isEmpty()) {
+            for (Patent patent : patentRepository.findAllBySecurityDocNumberIn(securityDocNumbers)) {
+                existing.computeIfAbsent(upsertKey("S" + patent.getSecurityDocNumber(), patent), k -> new ArrayList<>()).add(patent);
+            }
+        }
+        if (!registrationNumbers.isEmpty()) {
+            for (Patent patent : patentRepository.findAllByRegistrationNumberIn(registrationNumbers)) {
+                existing.computeIfAbsent(upsertKey("R" + patent.getRegistrationNumber(), patent), k -> new ArrayList<>()).add(patent);
+            }
+        }
+
+        List<Patent> inserts = new ArrayList<>();
+        int updated = 0;
+        for (Patent fresh : patents) {
+            if (fresh.getSecurityDocNumber() == null && fresh.getRegistrationNumber() == null) {
+                inserts.add(fresh);
+                continue;
+            }
+            String key = upsertKey(fresh.getSecurityDocNumber() != null ? "S" + fresh.getSecurityDocNumber() : "R" + fresh.getRegistrationNumber(), fresh);
+            List<Patent> matches = existing.get(key);
+            if (matches == null) {
+                inserts.add(fresh);
+                // Повтор того же номера дальше в пакете обновит эту же запись
+                existing.put(key, new ArrayList<>(List.of(fresh)));
+            } else {
+                for (Patent patent : matches) {
+                    if (patent != fresh) {
+                        copyInto(patent, fresh);
+                    }
+                }
+                updated++;
+            }
+        }
+        patentRepository.saveAll(inserts);
+        return new UpsertResult(inserts.size(), updated);
+    }
+
+    private String upsertKey(String number, Patent patent) {
+        return number + "|" + patent.getCategory() + "|" + patent.getPatentSite();
+    }
+
+    /**
+     * Переносит в сохранённый патент все поля, которые заполняют схема госреестра и ebulletin;
+     * пустые (null) поля нового разбора сохранённые значения не затирают.
+     */
+    private void copyInto(Patent patent, Patent fresh) {
+        if (fresh.getSecurityDocNumber() != null) patent.setSecurityDocNumber(fresh.getSecurityDocNumber());
+        if (fresh.getRegistrationNumber() != null) patent.setRegistrationNumber(fresh.getRegistrationNumber());
+        if (fresh.getTitle() != null) patent.setTitle(fresh.getTitle());
+        if (fresh.getName() != null) patent.setName(fresh.getName());
+        if (fresh.getStatus() != null) patent.setStatus(fresh.getStatus());
+        if (fresh.getApplicationNumber() != null) patent.setApplicationNumber(fresh.getApplicationNumber());
+        if (fresh.getAuthors() != null) patent.setAuthors(fresh.getAuthors());
+        if (fresh.getFilingDate() != null) patent.setFilingDate(fresh.getFilingDate());
+        if (fresh.getRegistrationDate() != null) patent.setRegistrationDate(fresh.getRegistrationDate());
+        if (fresh.getExpirationDate() != null) patent.setExpirationDate(fresh.getExpirationDate());
+        if (fresh.getBulletinNumber() != null) patent.setBulletinNumber(fresh.getBulletinNumber());
+        if (fresh.getBulletinDate() != null) patent.setBulletinDate(fresh.getBulletinDate());
+        if (fresh.getIpc() != null) patent.setIpc(fresh.getIpc());
+        if (fresh.getMkpo() != null) patent.setMkpo(fresh.getMkpo());
+        if (fresh.getSortName() != null) patent.setSortName(fresh.getSortName());
+        if (fresh.getPatentHolder() != null) patent.setPatentHolder(fresh.getPatentHolder());
+        if (fresh.getOwner() != null) patent.setOwner(fresh.getOwner());
+        if (fresh.getDocNumber() != null) patent.setDocNumber(fresh.getDocNumber());
+        if (fresh.getImageUrl() != null) patent.setImageUrl(fresh.getImageUrl());
+
+        if (fresh.getAdditionalFields() != null) {
+            if (patent.getAdditionalFields() == null) {
+                patent.setAdditionalFields(new ArrayList<>());
+            }
+            for (PatentAdditionalField field : fresh.getAdditionalFields()) {
+                Optional<PatentAdditionalField> current = patent.getAdditionalFields().stream()
+                        .filter(f -> field.getLabel().equals(f.getLabel()))
+                        .findFirst();
+                if (current.isPresent()) {
+                    current.get().setValue(field.getValue());
+                } else {
+                    patent.getAdditionalFields().add(new PatentAdditionalField(patent, field.getLabel(), field.getValue()));
+                }
+            }
+        }
+    }
+
+    public record UpsertResult(int inserted, int updated) {
+    }
 }
@@ -0,0 +1,121 @@
+package kz.it.patentparser.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RawResponseArchiveTests {
+    private static final String CATEGORY = "Изобретения";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storedBodiesAreReadBackAndDeduplicated() throws Exception {
+        RawResponseArchive archive = open(1 << 20);
+        archive.store(RawResponseArchive.GOSREESTR, CATEGORY, "1", "<html>первая</html>");
+        archive.store(RawResponseArchive.GOSREESTR, CATEGORY, "2", "<html>первая</html>");
+        archive.store(RawResponseArchive.GOSREESTR, CATEGORY, "1", "<html>вторая</html>");
+        archive.close();
+
+        assertEquals(Optional.of("<html>вторая</html>"), archive.readLatest(RawResponseArchive.GOSREESTR, CATEGORY, "1"));
+        assertEquals(Optional.of("<html>первая</html>"), archive.readLatest(RawResponseArchive.GOSREESTR, CATEGORY, "2"));
+        assertEquals(2, archive.history(RawResponseArchive.GOSREESTR, CATEGORY, "1").size());
+        assertEquals(2, archive.snapshot().get("blobs"));
+        assertEquals(3L, archive.snapshot().get("stored"));
+        assertEquals(1L, archive.snapshot().get("deduplicated"));
+        assertEquals(Optional.empty(), archive.readLatest(RawResponseArchive.EBULLETIN, CATEGORY, "1"));
+    }
+
+    @Test
+    void reopenedArchiveLoadsIndexAndKeepsAppending() throws Exception {
+        RawResponseArchive first = open(1 << 20);
+        first.store(RawResponseArchive.GOSREESTR, CATEGORY, "1", "old body");
+        first.close();
+
+        RawResponseArchive second = open(1 << 20);
+        assertEquals(Optional.of("old body"), second.readLatest(RawResponseArchive.GOSREESTR, CATEGORY, "1"));
+        second.store(RawResponseArchive.GOSREESTR, CATEGORY, "1", "old body");
+        second.store(RawResponseArchive.GOSREESTR, CATEGORY, "2", "new body");
+        second.close();
+
+        assertEquals(1L, second.snapshot().get("deduplicated"));
+        assertEquals(Optional.of("new body"), second.readLatest(RawResponseArchive.GOSREESTR, CATEGORY, "2"));
+        assertEquals(Optional.of("old body"), second.readLatest(RawResponseArchive.GOSREESTR, CATEGORY, "1"));
+    }
+
+    @Test
+    void bodiesRollOverIntoNewSegmentsAndReadInSegmentOrder() throws Exception {
+        RawResponseArchive archive = open(4096);
+        Random random = new Random(42);
+        String[] bodies = new String[5];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = randomBody(random, 3000);
+            archive.store(RawResponseArchive.GOSREESTR, CATEGORY, String.valueOf(i), bodies[i]);
+        }
+        archive.close();
+
+        try (var files = Files.list(dir)) {
+            assertTrue(files.filter(path -> path.getFileName().toString().startsWith("segment-")).count() > 1);
+        }
+        List<ArchiveEntry> latest = archive.latestEntries(RawResponseArchive.GOSREESTR);
+        assertEquals(bodies.length, latest.size());
+        for (int i = 1; i < latest.size(); i++) {
+            ArchiveEntry previous = latest.get(i - 1);
+            ArchiveEntry entry = latest.get(i);
+            assertTrue(previous.segment() < entry.segment()
+                    || previous.segment() == entry.segment() && previous.offset() < entry.offset());
+        }
+        for (int i = 0; i < bodies.length; i++) {
+            assertEquals(Optional.of(bodies[i]), archive.readLatest(RawResponseArchive.GOSREESTR, CATEGORY, String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void truncatedIndexLineIsSkippedOnOpen() throws Exception {
+        RawResponseArchive first = open(1 << 20);
+        first.store(RawResponseArchive.EBULLETIN, "bulletin", "2024-01", "{\"items\":[]}");
+        first.close();
+        Files.writeString(dir.resolve("index.tsv"), "1700000000000\tebul", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        RawResponseArchive second = open(1 << 20);
+
+        assertEquals(Optional.of("{\"items\":[]}"), second.readLatest(RawResponseArchive.EBULLETIN, "bulletin", "2024-01"));
+        assertEquals(1, second.snapshot().get("keys"));
+        second.close();
+    }
+
+    @Test
+    void disabledArchiveStoresNothing() throws IOException {
+        RawResponseArchive archive = new RawResponseArchive(false, dir.resolve("off").toString(), 1 << 20, 10);
+        archive.store(RawResponseArchive.GOSREESTR, CATEGORY, "1", "body");
+
+        assertFalse(Files.exists(dir.resolve("off")));
+        assertEquals(false, archive.snapshot().get("enabled"));
+        assertEquals(Optional.empty(), archive.latest(RawResponseArchive.GOSREESTR, CATEGORY, "1"));
+    }
+
+    private RawResponseArchive open(long segmentBytes) {
+        return new RawResponseArchive(true, dir.toString(), segmentBytes, 10);
+    }
+
+    private static String randomBody(Random random, int length) {
+        StringBuilder body = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            body.append((char) ('!' + random.nextInt(90)));
+        }
+        return body.toString();
+    }
+}
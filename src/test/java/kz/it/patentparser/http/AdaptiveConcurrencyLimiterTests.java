@@ -0,0 +1,130 @@
+package kz.it.patentparser.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTests {
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void normalResponsesIncreaseLimitAdditively() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10);
+
+        limiter.acquire().onResponse(200, null);
+        assertEquals(2.5, limiter.snapshot().get("limit"));
+        limiter.acquire().onResponse(404, null);
+        assertEquals(2.9, limiter.snapshot().get("limit"));
+    }
+
+    @Test
+    void increaseStopsAtMaxLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(3.9, 1, 4);
+
+        limiter.acquire().onResponse(200, null);
+        limiter.acquire().onResponse(200, null);
+        assertEquals(4.0, limiter.snapshot().get("limit"));
+    }
+
+    @Test
+    void overloadDecreasesLimitMultiplicativelyDownToMin() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 3, 10);
+
+        limiter.acquire().onResponse(503, null);
+        assertEquals(4.0, limiter.snapshot().get("limit"));
+        limiter.acquire().onResponse(429, null);
+        assertEquals(3.0, limiter.snapshot().get("limit"));
+        limiter.acquire().onError();
+        assertEquals(3.0, limiter.snapshot().get("limit"));
+        assertEquals(1L, limiter.snapshot().get("overloaded"));
+        assertEquals(1L, limiter.snapshot().get("throttled"));
+        assertEquals(1L, limiter.snapshot().get("errors"));
+    }
+
+    @Test
+    void burstOfOverloadResponsesDecreasesOncePerBaselineLatency() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 10);
+        AdaptiveConcurrencyLimiter.Permit slow = limiter.acquire();
+        Thread.sleep(200);
+        slow.onResponse(200, null);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire();
+        first.onResponse(503, null);
+        second.onResponse(503, null);
+
+        // 8 + 1/8 после быстрого ответа, затем одно снижение вдвое
+        assertEquals(4.06, limiter.snapshot().get("limit"));
+        assertEquals(1L, limiter.snapshot().get("decreases"));
+    }
+
+    @Test
+    void waitersAreGrantedAsPermitsAreReleased() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> cancelled = limiter.acquireAsync();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiting = limiter.acquireAsync();
+        assertFalse(waiting.isDone());
+
+        cancelled.cancel(false);
+        first.cancel();
+
+        assertTrue(waiting.isDone());
+        assertEquals(1, limiter.snapshot().get("inFlight"));
+        assertEquals(0, limiter.snapshot().get("waiting"));
+    }
+
+    @Test
+    void retryAfterPausesHostAndWakesWaiters() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10);
+        AdaptiveConcurrencyLimiter.Permit throttled = limiter.acquire();
+        throttled.onResponse(429, "1");
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiting = limiter.acquireAsync();
+        Thread.sleep(300);
+        assertFalse(waiting.isDone());
+
+        assertNotNull(waiting.get(3, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndHttpDate() {
+        assertEquals(Duration.ofSeconds(120), AdaptiveConcurrencyLimiter.parseRetryAfter(" 120 "));
+        String date = ZonedDateTime.now().plusSeconds(60).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        Duration untilDate = AdaptiveConcurrencyLimiter.parseRetryAfter(date);
+        assertNotNull(untilDate);
+        assertTrue(untilDate.getSeconds() > 50 && untilDate.getSeconds() <= 60);
+        assertNull(AdaptiveConcurrencyLimiter.parseRetryAfter("soon"));
+        assertNull(AdaptiveConcurrencyLimiter.parseRetryAfter(null));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(double initialLimit, double minLimit, double maxLimit) {
+        // Допуск по задержке не срабатывает: лимит меняется только статусами
+        return new AdaptiveConcurrencyLimiter("example.org", initialLimit, minLimit, maxLimit, 0.5, 0.9,
+                Double.MAX_VALUE, scheduler);
+    }
+}
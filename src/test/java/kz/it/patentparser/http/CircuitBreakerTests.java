@@ -0,0 +1,147 @@
+package kz.it.patentparser.http;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Время предохранителя - ручные часы, а таймер пробуждения - заглушка: сроки OPEN истекают только по advance().
+ */
+class CircuitBreakerTests {
+    private static final long OPEN_MS = 30_000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Runnable> wakes = new ArrayList<>();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            wakes.add(invocation.getArgument(0));
+            return null;
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        breaker = new CircuitBreaker("test", 2, 2, 0.5, TimeUnit.MILLISECONDS.toNanos(OPEN_MS),
+                TimeUnit.MILLISECONDS.toNanos(OPEN_MS * 4), 2, scheduler, clock::get);
+    }
+
+    @Test
+    void opensOnFailureRateAndWakesParkedCallers() throws Exception {
+        trip();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        CompletableFuture<CircuitBreaker.Call> parked = breaker.acquireAsync();
+        advance(OPEN_MS - 1);
+        assertFalse(parked.isDone());
+
+        advance(1);
+        assertTrue(parked.isDone());
+        CircuitBreaker.Call trial = parked.get();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        trial.success();
+        breaker.acquire().success();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedTrialDoublesOpenPeriod() throws Exception {
+        trip();
+        advance(OPEN_MS);
+        breaker.acquire().failure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        CompletableFuture<CircuitBreaker.Call> parked = breaker.acquireAsync();
+        advance(OPEN_MS);
+        assertFalse(parked.isDone());
+        advance(OPEN_MS);
+        assertTrue(parked.isDone());
+    }
+
+    @Test
+    void staleTrialSuccessDoesNotCloseNextRound() throws Exception {
+        trip();
+        advance(OPEN_MS);
+        CircuitBreaker.Call failing = breaker.acquire();
+        CircuitBreaker.Call stale = breaker.acquire();
+        failing.failure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        advance(OPEN_MS * 2);
+        CircuitBreaker.Call first = breaker.acquire();
+        CircuitBreaker.Call second = breaker.acquire();
+        stale.success();
+        first.success();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        second.success();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void staleTrialIgnoreDoesNotFreeTrialSlot() throws Exception {
+        trip();
+        advance(OPEN_MS);
+        CircuitBreaker.Call failing = breaker.acquire();
+        CircuitBreaker.Call stale = breaker.acquire();
+        failing.failure();
+
+        advance(OPEN_MS * 2);
+        CircuitBreaker.Call first = breaker.acquire();
+        CircuitBreaker.Call second = breaker.acquire();
+        CompletableFuture<CircuitBreaker.Call> waiter = breaker.acquireAsync();
+        stale.ignore();
+        assertFalse(waiter.isDone());
+
+        first.ignore();
+        assertTrue(waiter.isDone());
+        assertNotNull(waiter.get());
+        second.success();
+        waiter.get().success();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void callStartedBeforeOpeningDoesNotCountInNewWindow() throws Exception {
+        CircuitBreaker.Call early = breaker.acquire();
+        trip();
+        advance(OPEN_MS);
+        breaker.acquire().success();
+        breaker.acquire().success();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        early.failure();
+        breaker.acquire().failure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1L, breaker.snapshot().get("opened"));
+    }
+
+    private void trip() throws InterruptedException {
+        breaker.acquire().failure();
+        breaker.acquire().failure();
+    }
+
+    /**
+     * Переводит часы и выполняет запланированные пробуждения, как сделал бы таймер.
+     */
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        List<Runnable> due = new ArrayList<>(wakes);
+        wakes.clear();
+        due.forEach(Runnable::run);
+    }
+}
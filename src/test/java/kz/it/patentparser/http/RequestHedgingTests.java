@@ -0,0 +1,108 @@
+package kz.it.patentparser.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestHedgingTests {
+    private static final String HOST = "gosreestr.kazpatent.kz";
+
+    private RequestHedging hedging;
+
+    @BeforeEach
+    void setUp() {
+        hedging = new RequestHedging();
+        ReflectionTestUtils.setField(hedging, "enabled", true);
+        ReflectionTestUtils.setField(hedging, "percentile", 0.95);
+        ReflectionTestUtils.setField(hedging, "minSamples", 50);
+        ReflectionTestUtils.setField(hedging, "budgetRatio", 0.5);
+        ReflectionTestUtils.setField(hedging, "budgetBurst", 2.0);
+        ReflectionTestUtils.setField(hedging, "maxInFlight", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedging.shutdown();
+    }
+
+    @Test
+    void noHedgeWhenDisabled() {
+        ReflectionTestUtils.setField(hedging, "enabled", false);
+        recordMillis(1, 100);
+
+        assertEquals(-1, hedging.hedgeDelayNanos(HOST));
+    }
+
+    @Test
+    void noHedgeUntilMinSamples() {
+        recordMillis(1, 49);
+        assertEquals(-1, hedging.hedgeDelayNanos(HOST));
+
+        recordMillis(50, 50);
+        assertTrue(hedging.hedgeDelayNanos(HOST) > 0);
+    }
+
+    @Test
+    void thresholdIsObservedPercentileRecomputedEvery64Samples() {
+        // Первый замер считает порог сразу, следующий пересчёт - через 64 замера, на 65-м
+        recordMillis(1, 65);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(62), hedging.hedgeDelayNanos(HOST));
+
+        recordMillis(1000, 1000);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(62), hedging.hedgeDelayNanos(HOST));
+    }
+
+    @Test
+    void hedgesAreLimitedByBudgetAndBurst() {
+        assertFalse(hedging.tryStartHedge(HOST));
+
+        hedging.hedgeDelayNanos(HOST);
+        hedging.hedgeDelayNanos(HOST);
+        assertTrue(hedging.tryStartHedge(HOST));
+        assertFalse(hedging.tryStartHedge(HOST));
+
+        for (int i = 0; i < 20; i++) {
+            hedging.hedgeDelayNanos(HOST);
+        }
+        assertTrue(hedging.tryStartHedge(HOST));
+        assertTrue(hedging.tryStartHedge(HOST));
+        assertFalse(hedging.tryStartHedge(HOST));
+
+        Map<String, Object> values = hedging.snapshot().get(HOST);
+        assertEquals(3L, values.get("hedges"));
+        assertEquals(3L, values.get("denied"));
+        assertEquals(22L, values.get("requests"));
+    }
+
+    @Test
+    void hedgesInFlightAreCapped() {
+        ReflectionTestUtils.setField(hedging, "budgetBurst", 100.0);
+        ReflectionTestUtils.setField(hedging, "maxInFlight", 1);
+        for (int i = 0; i < 20; i++) {
+            hedging.hedgeDelayNanos(HOST);
+        }
+
+        assertTrue(hedging.tryStartHedge(HOST));
+        assertFalse(hedging.tryStartHedge(HOST));
+        hedging.hedgeFinished(HOST, true);
+        assertTrue(hedging.tryStartHedge(HOST));
+
+        Map<String, Object> values = hedging.snapshot().get(HOST);
+        assertEquals(1L, values.get("hedgeWins"));
+        assertEquals(1, values.get("hedgesInFlight"));
+    }
+
+    private void recordMillis(int from, int to) {
+        for (int millis = from; millis <= to; millis++) {
+            hedging.recordLatency(HOST, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+}
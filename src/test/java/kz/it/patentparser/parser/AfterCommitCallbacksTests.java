@@ -0,0 +1,148 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.dto.CardListingDto;
+import kz.it.patentparser.enums.NavigationDirection;
+import kz.it.patentparser.model.Patent;
+import kz.it.patentparser.service.CrawlCheckpointService;
+import kz.it.patentparser.service.DetailFingerprintService;
+import kz.it.patentparser.service.DetailFingerprintService.PageVersion;
+import kz.it.patentparser.service.PatentBatchWriter;
+import kz.it.patentparser.service.PatentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class AfterCommitCallbacksTests {
+    private static final Logger logger = LoggerFactory.getLogger(AfterCommitCallbacksTests.class);
+    private static final String CATEGORY = "Изобретения";
+
+    private PatentService patentService;
+    private DetailFingerprintService fingerprints;
+    private CrawlCheckpointService checkpoints;
+
+    @BeforeEach
+    void setUp() {
+        patentService = mock(PatentService.class);
+        fingerprints = mock(DetailFingerprintService.class);
+        checkpoints = mock(CrawlCheckpointService.class);
+    }
+
+    @Test
+    void failedBatchWritesNeitherFingerprintNorCheckpoint() throws Exception {
+        doThrow(new IllegalStateException("database is down")).when(patentService).savePatents(anyList(), any());
+
+        crawlOnePage();
+
+        verify(patentService).savePatents(anyList(), any());
+        verify(fingerprints, never()).record(anyString(), anyString(), any(), any());
+        verify(checkpoints, never()).save(anyString(), any(), anyInt(), any());
+        verify(checkpoints, never()).clear(anyString(), any());
+    }
+
+    @Test
+    void failedBatchDropsCallbacksRegisteredAfterIt() throws Exception {
+        doThrow(new IllegalStateException("database is down")).when(patentService).savePatents(anyList(), any());
+        PatentBatchWriter writer = new PatentBatchWriter(patentService, logger, 1, 50);
+        writer.submit(new Patent());
+        PageVersion version = new PageVersion("hash", null, null);
+        writer.afterCommit(() -> fingerprints.record(CATEGORY, "123", version, "card"));
+        verify(patentService, timeout(5000)).savePatents(anyList(), any());
+
+        writer.afterCommit(() -> fingerprints.recordCard(CATEGORY, "124", "card"));
+        writer.close();
+
+        verify(fingerprints, never()).record(anyString(), anyString(), any(), any());
+        verify(fingerprints, never()).recordCard(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void concurrentProducersSeeTheirPatentSavedBeforeCallback() throws Exception {
+        Set<String> saved = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            List<Patent> batch = invocation.getArgument(0);
+            Thread.sleep(1);
+            batch.forEach(patent -> saved.add(patent.getDocNumber()));
+            return null;
+        }).when(patentService).savePatents(anyList(), any());
+        PatentBatchWriter writer = new PatentBatchWriter(patentService, logger, 3, 1);
+        AtomicInteger early = new AtomicInteger();
+        AtomicInteger confirmed = new AtomicInteger();
+        int producers = 8;
+        int perProducer = 300;
+
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    String docNumber = producer + "-" + i;
+                    Patent patent = new Patent();
+                    patent.setDocNumber(docNumber);
+                    writer.submit(patent);
+                    writer.afterCommit(() -> {
+                        if (!saved.contains(docNumber)) {
+                            early.incrementAndGet();
+                        }
+                        confirmed.incrementAndGet();
+                    });
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        writer.close();
+
+        assertEquals(0, early.get());
+        assertEquals(producers * perProducer, confirmed.get());
+    }
+
+    @Test
+    void savedBatchWritesFingerprintAndCheckpoint() throws Exception {
+        crawlOnePage();
+
+        verify(fingerprints).record(CATEGORY, "123", new PageVersion("hash", null, null), "card");
+        verify(checkpoints).save(CATEGORY, NavigationDirection.NEXT, 1, "123");
+        verify(checkpoints).clear(CATEGORY, NavigationDirection.NEXT);
+    }
+
+    private void crawlOnePage() throws Exception {
+        PatentBatchWriter writer = new PatentBatchWriter(patentService, logger, 10, 50);
+        PageCheckpointTracker tracker = new PageCheckpointTracker(checkpoints, writer);
+        CardListingDto listing = new CardListingDto(CATEGORY, "/details/123", "123", "card");
+
+        tracker.beginPage(CATEGORY, NavigationDirection.NEXT, 1, List.of(listing));
+        writer.submit(new Patent());
+        PageVersion version = new PageVersion("hash", null, null);
+        writer.afterCommit(() -> fingerprints.record(CATEGORY, "123", version, "card"));
+        tracker.cardDone(listing);
+        tracker.finish(CATEGORY, NavigationDirection.NEXT);
+        writer.close();
+    }
+}
@@ -0,0 +1,84 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.model.Patent;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GosReestrDetailParserTests {
+    private static final String BASE_URL = "https://gosreestr.kazpatent.kz/Invention/Details?docNumber=123";
+    private static final String CATEGORY = "Изобретения";
+
+    private static final String MULTI_LIST_PAGE = """
+            <html><head><style>.detial_plan_info { margin: 0 }</style></head>
+            <body>
+            <div class="menu"><ul><li><strong>Меню</strong><span>пункт</span></li></ul></div>
+            <div class="detial_plan_info">
+              <ul>
+                <li><strong>(11) № охранного документа</strong><span>12345</span></li>
+                <li><strong>Статус</strong><span>Действует</span></li>
+                <li><strong>Патентообладатель</strong><span>
+                  <ul><li>ТОО Первый</li><li>ТОО Второй</li></ul>
+                </span></li>
+                <li><strong>(21) Номер заявки</strong><span>2020/0001.1</span></li>
+              </ul>
+              <div class="divider"></div>
+              <ul>
+                <li><strong>(22) Дата подачи заявки</strong><span>01.02.2020</span></li>
+                <li><strong>МПК</strong><span>A61K 36/00</span></li>
+                <li><strong>Формула</strong><span>Способ получения</span></li>
+              </ul>
+            </div>
+            <div class="plan_img"><img src="/Content/img/123.png"></div>
+            <div class="footer"><ul><li><strong>Контакты</strong><span>адрес</span></li></ul></div>
+            </body></html>
+            """;
+
+    @Test
+    void selectiveExtractionKeepsNestedAndFollowingLists() {
+        GosReestrDetailParser parser = new GosReestrDetailParser();
+
+        Patent selective = parser.parse(MULTI_LIST_PAGE, BASE_URL, "123", CATEGORY);
+        Patent full = parser.parse(Jsoup.parse(MULTI_LIST_PAGE, BASE_URL), "123", CATEGORY);
+
+        assertEquals(1L, parser.snapshot().get("selective"));
+        assertEquals(0L, parser.snapshot().get("fullDom"));
+        assertEquals(describe(full), describe(selective));
+        assertEquals(fields(full), fields(selective));
+
+        assertEquals("12345", selective.getSecurityDocNumber());
+        assertEquals("2020/0001.1", selective.getApplicationNumber());
+        assertEquals(LocalDate.of(2020, 2, 1), selective.getFilingDate());
+        assertEquals("A61K 36/00", selective.getIpc());
+        assertEquals("Действует", selective.getStatus());
+        assertEquals("https://gosreestr.kazpatent.kz/Content/img/123.png", selective.getImageUrl());
+    }
+
+    @Test
+    void unclosedDetailsBlockFallsBackToFullParse() {
+        GosReestrDetailParser parser = new GosReestrDetailParser();
+        String page = MULTI_LIST_PAGE.substring(0, MULTI_LIST_PAGE.indexOf("<div class=\"divider\">"));
+
+        Patent patent = parser.parse(page, BASE_URL, "123", CATEGORY);
+
+        assertEquals(0L, parser.snapshot().get("selective"));
+        assertEquals(1L, parser.snapshot().get("fullDom"));
+        assertEquals("12345", patent.getSecurityDocNumber());
+    }
+
+    private static List<Object> describe(Patent patent) {
+        return Arrays.asList(patent.getSecurityDocNumber(), patent.getStatus(), patent.getApplicationNumber(),
+                patent.getFilingDate(), patent.getIpc(), patent.getPatentHolder(), patent.getImageUrl());
+    }
+
+    private static List<String> fields(Patent patent) {
+        return patent.getAdditionalFields().stream()
+                .map(field -> field.getLabel() + "=" + field.getValue())
+                .toList();
+    }
+}
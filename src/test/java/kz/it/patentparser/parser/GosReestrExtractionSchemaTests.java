@@ -0,0 +1,61 @@
+package kz.it.patentparser.parser;
+
+import kz.it.patentparser.model.Patent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GosReestrExtractionSchemaTests {
+    private static final String CATEGORY = "Изобретения";
+    private static final GosReestrExtractionSchema SCHEMA = GosReestrExtractionSchema.forCategory(CATEGORY);
+
+    @Test
+    void authorsLabelIsMatchedAfterCleaning() {
+        assertEquals("Автор", GosReestrExtractionSchema.cleanLabel("(72) Автор(-ы)"));
+        assertEquals("Номер заявки", GosReestrExtractionSchema.cleanLabel("(21) Номер заявки"));
+
+        GosReestrExtractionSchema.DetailField field = SCHEMA.detailField(GosReestrExtractionSchema.cleanLabel("Автор(-ы)"));
+        assertNotNull(field);
+        assertFalse(field.link());
+
+        Patent patent = new Patent();
+        field.setter().accept(patent, "Иванов И.И.");
+        assertEquals("Иванов И.И.", patent.getAuthors());
+    }
+
+    @Test
+    void cardStatusDoesNotOverrideDetailStatus() {
+        Patent card = new Patent();
+        SCHEMA.applyCardText(card, "Статус: Прекращен\nНомер бюллетеня: 12");
+        assertEquals("Прекращен", card.getStatus());
+
+        Patent detail = new Patent();
+        detail.setStatus("Действует");
+        GosReestrPatentParser.mergePatentData(card, detail);
+
+        assertEquals("Действует", card.getStatus());
+        assertEquals("12", card.getBulletinNumber());
+    }
+
+    @Test
+    void cardStatusFillsMissingDetailStatus() {
+        Patent card = new Patent();
+        SCHEMA.applyCardText(card, "Статус: Прекращен");
+
+        GosReestrPatentParser.mergePatentData(card, new Patent());
+
+        assertEquals("Прекращен", card.getStatus());
+    }
+
+    @Test
+    void cardLabelWithoutValueLeavesFieldEmpty() {
+        Patent card = new Patent();
+        SCHEMA.applyCardText(card, "Статус:\nНомер бюллетеня: 12");
+
+        assertNull(card.getStatus());
+        assertEquals("12", card.getBulletinNumber());
+    }
+}
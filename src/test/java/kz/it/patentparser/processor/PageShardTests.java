@@ -0,0 +1,81 @@
+package kz.it.patentparser.processor;
+
+import kz.it.patentparser.processor.GosReestrCrawlCoordinator.PageShard;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PageShardTests {
+    private static final String CATEGORY = "Изобретения";
+
+    @Test
+    void claimsPagesInOrderUntilEnd() {
+        PageShard shard = new PageShard(CATEGORY, 1, 4);
+
+        assertEquals(1, shard.claimNext());
+        assertEquals(2, shard.claimNext());
+        assertEquals(3, shard.claimNext());
+        assertEquals(-1, shard.claimNext());
+        assertEquals(0, shard.remaining());
+    }
+
+    @Test
+    void returnedPageIsClaimedAgain() {
+        PageShard shard = new PageShard(CATEGORY, 1, 4);
+        int page = shard.claimNext();
+
+        shard.returnPage(page);
+
+        assertEquals(3, shard.remaining());
+        assertEquals(page, shard.claimNext());
+    }
+
+    @Test
+    void onlyLastClaimedPageCanBeReturned() {
+        PageShard shard = new PageShard(CATEGORY, 1, 10);
+        int first = shard.claimNext();
+        shard.claimNext();
+
+        shard.returnPage(first);
+
+        assertEquals(3, shard.claimNext());
+    }
+
+    @Test
+    void splitCutsRemainingTailInHalf() {
+        PageShard shard = new PageShard(CATEGORY, 1, 11);
+        shard.claimNext();
+
+        PageShard tail = shard.split(2);
+
+        assertNotNull(tail);
+        assertEquals(CATEGORY, tail.getCategory());
+        assertEquals(4, shard.remaining());
+        assertEquals(5, tail.remaining());
+        assertEquals("Изобретения pages 2-5", shard.toString());
+        assertEquals("Изобретения pages 6-10", tail.toString());
+    }
+
+    @Test
+    void shardTooSmallIsNotSplit() {
+        PageShard shard = new PageShard(CATEGORY, 1, 8);
+
+        assertNull(shard.split(4));
+        assertEquals(7, shard.remaining());
+    }
+
+    @Test
+    void pageClaimedBeforeSplitStaysWithOwner() {
+        PageShard shard = new PageShard(CATEGORY, 1, 9);
+        int page = shard.claimNext();
+        PageShard tail = shard.split(2);
+
+        shard.returnPage(page);
+
+        assertNotNull(tail);
+        assertEquals(page, shard.claimNext());
+        assertEquals(5, tail.claimNext());
+    }
+}
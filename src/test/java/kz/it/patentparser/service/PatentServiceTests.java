@@ -0,0 +1,49 @@
+package kz.it.patentparser.service;
+
+import kz.it.patentparser.model.Patent;
+import kz.it.patentparser.repository.PatentAdditionalFieldRepository;
+import kz.it.patentparser.repository.PatentRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PatentServiceTests {
+    private static final String CATEGORY = "Товарные знаки";
+    private static final String SITE = "gosreestr.kazpatent.kz";
+
+    @Test
+    void refreshPatentCopiesClassesAndTrademarkName() {
+        PatentRepository repository = mock(PatentRepository.class);
+        PatentService service = new PatentService(repository, mock(PatentAdditionalFieldRepository.class), null);
+
+        Patent stored = patent();
+        stored.setMkpo("25");
+        stored.setName("Старое");
+        stored.setStatus("Действует");
+        when(repository.findBySecurityDocNumberAndCategoryAndPatentSite("777", CATEGORY, SITE)).thenReturn(Optional.of(stored));
+
+        Patent fresh = patent();
+        fresh.setMkpo("25, 35");
+        fresh.setName("Новое");
+        fresh.setRegistrationNumber("R-1");
+
+        assertTrue(service.refreshPatent(fresh));
+        assertEquals("25, 35", stored.getMkpo());
+        assertEquals("Новое", stored.getName());
+        assertEquals("R-1", stored.getRegistrationNumber());
+        assertEquals("Действует", stored.getStatus());
+    }
+
+    private static Patent patent() {
+        Patent patent = new Patent();
+        patent.setSecurityDocNumber("777");
+        patent.setCategory(CATEGORY);
+        patent.setPatentSite(SITE);
+        return patent;
+    }
+}